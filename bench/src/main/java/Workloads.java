@@ -0,0 +1,252 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
+
+// The game classes are in the default package, which JMH benchmarks (and any named package)
+// cannot import. Benchmarks look this class up reflectively once and then only call the
+// returned LongSupplier, which the JIT inlines like a direct call.
+public final class Workloads {
+    private static final int POSITIONS = 64;
+
+    private Workloads() {
+    }
+
+    public static LongSupplier create(String name, int gridSize, int param) {
+        switch (name) {
+            case "winner-scan":
+                return winnerScan(gridSize, param);
+            case "winner-last-move":
+                return winnerLastMove(gridSize, param);
+            case "move-buffer":
+                return moveBuffer(gridSize);
+            case "move-stream":
+                return moveStream(gridSize);
+            case "loopback-round-trip":
+                return loopbackRoundTrip(gridSize);
+            case "alphabeta-nodes":
+                return alphaBetaNodes(gridSize, param);
+            case "mcts-playouts":
+                return mctsPlayouts(gridSize, param);
+            default:
+                throw new IllegalArgumentException("Unknown workload " + name);
+        }
+    }
+
+    public static void close(LongSupplier workload) throws Exception {
+        if (workload instanceof AutoCloseable) {
+            ((AutoCloseable) workload).close();
+        }
+    }
+
+    // Boards filled to fillPercent with random moves (stopping early on a win),
+    // cycled so the branch predictor can't learn a single position
+    private static Board[] positions(int gridSize, int fillPercent, int[] lastMoves) {
+        SplittableRandom random = new SplittableRandom(gridSize * 31L + fillPercent);
+        int[] moves = new int[gridSize * gridSize];
+        Board[] boards = new Board[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            Board b = new Board(gridSize, Math.min(gridSize, 3 + gridSize / 4));
+            b.reset(Board.X);
+            int target = Math.max(1, gridSize * gridSize * fillPercent / 100);
+            int last = 0;
+            while (b.getMoveCount() < target) {
+                int n = b.legalMoves(moves);
+                last = moves[random.nextInt(n)];
+                if (b.play(last) || b.isFull()) break;
+            }
+            boards[i] = b;
+            lastMoves[i] = last;
+        }
+        return boards;
+    }
+
+    // Full-board check behind TicTacToeGame.getWinner()
+    private static LongSupplier winnerScan(int gridSize, int fillPercent) {
+        Board[] boards = positions(gridSize, fillPercent, new int[POSITIONS]);
+        return new LongSupplier() {
+            int i;
+
+            @Override
+            public long getAsLong() {
+                return boards[i++ & (POSITIONS - 1)].winner();
+            }
+        };
+    }
+
+    // Incremental check behind TicTacToeGame.getWinner(row, col)
+    private static LongSupplier winnerLastMove(int gridSize, int fillPercent) {
+        int[] last = new int[POSITIONS];
+        Board[] boards = positions(gridSize, fillPercent, last);
+        return new LongSupplier() {
+            int i;
+
+            @Override
+            public long getAsLong() {
+                int k = i++ & (POSITIONS - 1);
+                Board b = boards[k];
+                return b.isWinningCell(last[k], b.getSideToMove() ^ 1) ? 1 : 0;
+            }
+        };
+    }
+
+    private static LongSupplier moveBuffer(int gridSize) {
+        ByteBuffer buf = ByteBuffer.allocateDirect(Protocol.MOVE_SIZE);
+        int cells = gridSize * gridSize;
+        return new LongSupplier() {
+            int cell;
+
+            @Override
+            public long getAsLong() {
+                cell = (cell + 1) % cells;
+                buf.clear();
+                // Move number and cell advance together, as in a game filling the board in order
+                Protocol.writeMove(buf, cell, cell);
+                buf.flip();
+                try {
+                    return Protocol.moveCell(Protocol.readMove(buf));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    // Same encode/decode through the DataOutput/DataInput path TicTacToeNetwork uses
+    private static LongSupplier moveStream(int gridSize) {
+        byte[] frame = new byte[Protocol.MOVE_SIZE];
+        FrameOutput sink = new FrameOutput(frame);
+        DataOutputStream out = new DataOutputStream(sink);
+        ByteArrayInputStream source = new ByteArrayInputStream(frame);
+        DataInputStream in = new DataInputStream(source);
+        int cells = gridSize * gridSize;
+        return new LongSupplier() {
+            int cell;
+
+            @Override
+            public long getAsLong() {
+                cell = (cell + 1) % cells;
+                try {
+                    sink.pos = 0;
+                    Protocol.writeMove(out, cell, cell);
+                    source.reset();
+                    return Protocol.moveCell(Protocol.readMove(in));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    private static final class FrameOutput extends OutputStream {
+        private final byte[] frame;
+        int pos;
+
+        FrameOutput(byte[] frame) {
+            this.frame = frame;
+        }
+
+        @Override
+        public void write(int b) {
+            frame[pos++] = (byte) b;
+        }
+    }
+
+    // One move out and the echoed move back over a real loopback TCP connection
+    private static LongSupplier loopbackRoundTrip(int gridSize) {
+        try {
+            ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+            Thread echo = new Thread(() -> {
+                try (Socket s = server.accept()) {
+                    s.setTcpNoDelay(true);
+                    DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                    while (true) {
+                        int move = Protocol.readMove(in);
+                        Protocol.writeMove(out, Protocol.moveSeq(move), Protocol.moveCell(move));
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    // Benchmark closed the connection
+                }
+            }, "bench-echo");
+            echo.setDaemon(true);
+            echo.start();
+            Socket client = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+            client.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()));
+            int cells = gridSize * gridSize;
+            return new RoundTrip(client, server, in, out, cells);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class RoundTrip implements LongSupplier, AutoCloseable {
+        private final Socket client;
+        private final ServerSocket server;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final int cells;
+        private int cell;
+
+        RoundTrip(Socket client, ServerSocket server, DataInputStream in, DataOutputStream out, int cells) {
+            this.client = client;
+            this.server = server;
+            this.in = in;
+            this.out = out;
+            this.cells = cells;
+        }
+
+        @Override
+        public long getAsLong() {
+            cell = (cell + 1) % cells;
+            try {
+                Protocol.writeMove(out, cell, cell);
+                out.flush();
+                return Protocol.moveCell(Protocol.readMove(in));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            client.close();
+            server.close();
+        }
+    }
+
+    // One fixed-depth search from the empty board per call; returns nodes searched
+    private static LongSupplier alphaBetaNodes(int gridSize, int depth) {
+        Board board = new Board(gridSize, Math.min(gridSize, 4));
+        board.reset(Board.X);
+        return () -> {
+            AlphaBetaStrategy engine = new AlphaBetaStrategy(Long.MAX_VALUE / 2_000_000L, depth, 4, 1);
+            engine.selectMove(board);
+            return engine.getNodes();
+        };
+    }
+
+    // One move with a budgetMillis search from the empty board per call; returns playouts
+    private static LongSupplier mctsPlayouts(int gridSize, int budgetMillis) {
+        Board board = new Board(gridSize, Math.min(gridSize, 4));
+        board.reset(Board.X);
+        MctsStrategy engine = new MctsStrategy(budgetMillis, 1 << 18, 1);
+        return () -> {
+            engine.selectMove(board);
+            return engine.getPlayouts();
+        };
+    }
+}
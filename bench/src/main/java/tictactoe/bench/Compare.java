@@ -0,0 +1,85 @@
+package tictactoe.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compares a JMH CSV result (-rf csv) against a stored one, such as bench/baseline.csv:
+//   java -cp bench/target/benchmarks.jar tictactoe.bench.Compare bench/baseline.csv new.csv [percent]
+// A score regresses when it is worse by more than percent (default 10) and by more than
+// both runs' 99.9% error bars together. Exits with status 1 if any score regressed.
+// Lines starting with # are comments.
+public final class Compare {
+    private Compare() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: Compare baseline.csv result.csv [percent]");
+            System.exit(2);
+        }
+        Map<String, double[]> baseline = read(Path.of(args[0]));
+        Map<String, double[]> result = read(Path.of(args[1]));
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) / 100 : 0.10;
+
+        int regressions = 0;
+        System.out.printf("%-60s %14s %14s %8s%n", "Benchmark", "baseline", "now", "change");
+        for (Map.Entry<String, double[]> e : result.entrySet()) {
+            double[] was = baseline.get(e.getKey());
+            double[] now = e.getValue();
+            if (was == null) {
+                System.out.printf("%-60s %14s %14.3f %8s%n", e.getKey(), "-", now[0], "new");
+                continue;
+            }
+            // [score, error, 1 if higher is better]
+            double change = was[0] == 0 ? 0 : (now[0] - was[0]) / was[0];
+            double worse = now[2] == 1 ? -change : change;
+            boolean regressed = worse > tolerance
+                    && Math.abs(now[0] - was[0]) > Math.sqrt(was[1] * was[1] + now[1] * now[1]);
+            if (regressed) regressions++;
+            System.out.printf("%-60s %14.3f %14.3f %+7.1f%%%s%n", e.getKey(), was[0], now[0], 100 * change,
+                    regressed ? "  REGRESSED" : "");
+        }
+        System.out.printf("%d of %d scores regressed by more than %.0f%%%n", regressions, result.size(), 100 * tolerance);
+        if (regressions > 0) System.exit(1);
+    }
+
+    // Benchmark name with its params -> {score, error, 1 if higher is better}
+    private static Map<String, double[]> read(Path path) throws IOException {
+        Map<String, double[]> scores = new LinkedHashMap<>();
+        List<String> header = null;
+        for (String line : Files.readAllLines(path)) {
+            if (line.isBlank() || line.startsWith("#")) continue;
+            List<String> fields = split(line);
+            if (header == null) {
+                header = fields;
+                continue;
+            }
+            StringBuilder key = new StringBuilder(fields.get(header.indexOf("Benchmark")));
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("Param: ") && !fields.get(i).isEmpty()) {
+                    key.append(' ').append(header.get(i).substring(7)).append('=').append(fields.get(i));
+                }
+            }
+            String error = fields.get(header.indexOf("Score Error (99.9%)"));
+            scores.put(key.toString(), new double[] {
+                    Double.parseDouble(fields.get(header.indexOf("Score"))),
+                    error.isEmpty() || error.equals("NaN") ? 0 : Double.parseDouble(error),
+                    fields.get(header.indexOf("Mode")).equals("thrpt") ? 1 : 0});
+        }
+        return scores;
+    }
+
+    // JMH quotes every text field and never puts commas inside one
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        for (String f : line.split(",", -1)) {
+            fields.add(f.length() >= 2 && f.startsWith("\"") && f.endsWith("\"") ? f.substring(1, f.length() - 1) : f);
+        }
+        return fields;
+    }
+}
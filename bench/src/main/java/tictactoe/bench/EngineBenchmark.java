@@ -0,0 +1,62 @@
+package tictactoe.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Search engines, reported as nodes (alpha-beta) and playouts (MCTS) per second
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class EngineBenchmark {
+    @Param({"4", "6"})
+    int gridSize;
+
+    private LongSupplier alphaBeta;
+    private LongSupplier mcts;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long nodes;
+        public long playouts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+            playouts = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        alphaBeta = Workload.create("alphabeta-nodes", gridSize, 5);
+        mcts = Workload.create("mcts-playouts", gridSize, 10);
+    }
+
+    @Benchmark
+    public void alphaBeta(Counters counters) {
+        counters.nodes += alphaBeta.getAsLong();
+    }
+
+    @Benchmark
+    public void mcts(Counters counters) {
+        counters.playouts += mcts.getAsLong();
+    }
+}
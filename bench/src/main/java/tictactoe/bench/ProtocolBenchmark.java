@@ -0,0 +1,56 @@
+package tictactoe.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Move frame encode + decode, in memory and over a loopback socket
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolBenchmark {
+    private LongSupplier buffer;
+    private LongSupplier stream;
+    private LongSupplier loopback;
+
+    @Setup
+    public void setup() {
+        buffer = Workload.create("move-buffer", 10, 0);
+        stream = Workload.create("move-stream", 10, 0);
+        loopback = Workload.create("loopback-round-trip", 10, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Workload.close(loopback);
+    }
+
+    @Benchmark
+    public long moveByteBuffer() {
+        return buffer.getAsLong();
+    }
+
+    @Benchmark
+    public long moveDataStream() {
+        return stream.getAsLong();
+    }
+
+    @Benchmark
+    public long loopbackRoundTrip() {
+        return loopback.getAsLong();
+    }
+}
@@ -0,0 +1,50 @@
+package tictactoe.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// TicTacToeGame.getWinner() (full scan) and getWinner(row, col) (last move only)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WinnerBenchmark {
+    @Param({"3", "5", "7", "10"})
+    int gridSize;
+
+    @Param({"25", "50", "90"})
+    int fillPercent;
+
+    private LongSupplier scan;
+    private LongSupplier lastMove;
+
+    @Setup
+    public void setup() {
+        scan = Workload.create("winner-scan", gridSize, fillPercent);
+        lastMove = Workload.create("winner-last-move", gridSize, fillPercent);
+    }
+
+    @Benchmark
+    public long fullScan() {
+        return scan.getAsLong();
+    }
+
+    @Benchmark
+    public long lastMove() {
+        return lastMove.getAsLong();
+    }
+}
@@ -0,0 +1,39 @@
+package tictactoe.bench;
+
+import java.lang.reflect.Method;
+import java.util.function.LongSupplier;
+
+// Bridge to the default-package Workloads class, which benchmarks cannot import
+final class Workload {
+    private static final Method CREATE;
+    private static final Method CLOSE;
+
+    static {
+        try {
+            Class<?> workloads = Class.forName("Workloads");
+            CREATE = workloads.getMethod("create", String.class, int.class, int.class);
+            CLOSE = workloads.getMethod("close", LongSupplier.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Workload() {
+    }
+
+    static LongSupplier create(String name, int gridSize, int param) {
+        try {
+            return (LongSupplier) CREATE.invoke(null, name, gridSize, param);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static void close(LongSupplier workload) {
+        try {
+            CLOSE.invoke(null, workload);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
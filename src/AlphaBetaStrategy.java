@@ -0,0 +1,291 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Negamax with alpha-beta pruning and iterative deepening inside a per-move time budget.
+// Moves are ordered by transposition table move, killer moves, history and centrality.
+// With more than one thread it runs Lazy SMP: helpers search the same root, staggered
+// by depth, and only share the lock-free transposition table. The main searcher's
+// result is the one played.
+public class AlphaBetaStrategy implements Strategy {
+    static final int WIN = 1_000_000;
+    static final int MAX_PLY = Board.MAX_SIZE * Board.MAX_SIZE + 1;
+
+    // Heuristic scores have to stay well clear of WIN - MAX_PLY, where they would be taken
+    // for forced wins: the weights flatten out past 6 stones and evaluate() clamps the sum
+    private static final int[] LINE_WEIGHT = {0, 1, 8, 64, 512, 4096, 32768, 65536, 98304, 131072, 131072};
+    private static final int EVAL_LIMIT = WIN / 2;
+    private static final AtomicInteger POOL_ID = new AtomicInteger();
+
+    private final long budgetNanos;
+    private final int maxDepth;
+    private final TranspositionTable table;
+    private final Searcher[] searchers;
+    private final ExecutorService helpers;
+    private int[] centrality;
+    private long deadline;
+    private volatile boolean stop;
+
+    public AlphaBetaStrategy(long budgetMillis) {
+        this(budgetMillis, MAX_PLY, 16, 1);
+    }
+
+    public AlphaBetaStrategy(long budgetMillis, int maxDepth, int tableMb, int threads) {
+        this.budgetNanos = budgetMillis * 1_000_000L;
+        this.maxDepth = maxDepth;
+        this.table = new TranspositionTable(tableMb);
+        this.searchers = new Searcher[Math.max(1, threads)];
+        for (int i = 0; i < searchers.length; i++) {
+            searchers[i] = new Searcher(i);
+        }
+        if (searchers.length > 1) {
+            int pool = POOL_ID.incrementAndGet();
+            AtomicInteger n = new AtomicInteger();
+            helpers = Executors.newFixedThreadPool(searchers.length - 1, r -> {
+                Thread t = new Thread(r, "search-" + pool + "-helper-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        } else {
+            helpers = null;
+        }
+    }
+
+    @Override
+    public int selectMove(Board position) {
+        if (centrality == null || searchers[0].board == null
+                || searchers[0].board.getGridSize() != position.getGridSize()
+                || searchers[0].board.getWinLength() != position.getWinLength()) {
+            table.clear();
+            centrality = centrality(position.getGridSize());
+        }
+        deadline = System.nanoTime() + budgetNanos;
+        stop = false;
+        table.newSearch();
+
+        Future<?>[] running = new Future<?>[searchers.length - 1];
+        for (Searcher s : searchers) {
+            s.prepare(position);
+        }
+        for (int i = 1; i < searchers.length; i++) {
+            running[i - 1] = helpers.submit(searchers[i]::iterate);
+        }
+        int best = searchers[0].iterate();
+        stop = true;
+        for (Future<?> f : running) {
+            try {
+                f.get();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        return best;
+    }
+
+    public void shutdown() {
+        if (helpers != null) helpers.shutdownNow();
+    }
+
+    public int getThreads() {
+        return searchers.length;
+    }
+
+    // Nodes searched by all threads during the last selectMove()
+    public long getNodes() {
+        long nodes = 0;
+        for (Searcher s : searchers) nodes += s.nodes;
+        return nodes;
+    }
+
+    public int getCompletedDepth() {
+        return searchers[0].completedDepth;
+    }
+
+    // Per-thread search state; only the transposition table is shared
+    private final class Searcher {
+        private final int id;
+        private final int[][] moves = new int[MAX_PLY][Board.MAX_SIZE * Board.MAX_SIZE];
+        private final int[][] order = new int[MAX_PLY][Board.MAX_SIZE * Board.MAX_SIZE];
+        private final int[][] killers = new int[MAX_PLY][2];
+        private final int[][] history = new int[2][Board.MAX_SIZE * Board.MAX_SIZE];
+        private Board board;
+        private long nodes;
+        private boolean aborted;
+        private int rootBest;
+        private int completedDepth;
+
+        Searcher(int id) {
+            this.id = id;
+        }
+
+        void prepare(Board position) {
+            if (board == null || board.getGridSize() != position.getGridSize()
+                    || board.getWinLength() != position.getWinLength()) {
+                board = new Board(position);
+            } else {
+                board.copyFrom(position);
+            }
+            for (int[] h : history) {
+                for (int i = 0; i < h.length; i++) h[i] >>= 2;
+            }
+            for (int[] k : killers) {
+                k[0] = k[1] = -1;
+            }
+            nodes = 0;
+            aborted = false;
+            completedDepth = 0;
+        }
+
+        int iterate() {
+            int n = board.legalMoves(moves[0]);
+            int best = moves[0][0];
+            int maxSearchDepth = Math.min(maxDepth, n);
+            // Odd helpers start one ply deeper so threads spread over different depths
+            for (int depth = 1 + (id & 1); depth <= maxSearchDepth; depth++) {
+                int score = negamax(depth, 0, -WIN - 1, WIN + 1);
+                if (aborted) break;
+                best = rootBest;
+                completedDepth = depth;
+                // A forced result will not change with more depth
+                if (Math.abs(score) >= WIN - MAX_PLY) break;
+            }
+            return best;
+        }
+
+        private int negamax(int depth, int ply, int alpha, int beta) {
+            if ((++nodes & 1023) == 0 && (stop || System.nanoTime() - deadline > 0)) {
+                aborted = true;
+            }
+            if (aborted) return 0;
+            if (board.isFull()) return 0;
+            if (depth == 0) return evaluate();
+
+            long key = board.getHash();
+            int ttMove = -1;
+            long entry = table.probe(key);
+            if (entry != 0) {
+                ttMove = TranspositionTable.move(entry);
+                if (ttMove == TranspositionTable.NO_MOVE || !board.isEmpty(ttMove)) ttMove = -1;
+                if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                    int score = fromTable(TranspositionTable.score(entry), ply);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER && score >= beta)
+                            || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+
+            int n = board.legalMoves(moves[ply]);
+            orderMoves(ply, n, ttMove);
+
+            int side = board.getSideToMove();
+            int alphaOrig = alpha;
+            int best = -WIN - 1;
+            int bestMove = moves[ply][0];
+            for (int i = 0; i < n; i++) {
+                int cell = moves[ply][i];
+                int score = board.play(cell) ? WIN - ply - 1 : -negamax(depth - 1, ply + 1, -beta, -alpha);
+                board.undo(cell);
+                if (aborted) return 0;
+
+                if (score > best) {
+                    best = score;
+                    bestMove = cell;
+                    if (ply == 0) rootBest = cell;
+                }
+                if (score > alpha) alpha = score;
+                if (alpha >= beta) {
+                    if (killers[ply][0] != cell) {
+                        killers[ply][1] = killers[ply][0];
+                        killers[ply][0] = cell;
+                    }
+                    history[side][cell] += depth * depth;
+                    break;
+                }
+            }
+
+            int bound = best <= alphaOrig ? TranspositionTable.UPPER
+                    : best >= beta ? TranspositionTable.LOWER
+                    : TranspositionTable.EXACT;
+            table.store(key, toTable(best, ply), bestMove, depth, bound);
+            return best;
+        }
+
+        // Sorts moves[ply][0..n) best first; insertion sort is plenty for at most 100 moves.
+        // Helpers add a little noise so they don't all walk the tree in the same order.
+        private void orderMoves(int ply, int n, int ttMove) {
+            int[] m = moves[ply];
+            int[] score = order[ply];
+            int side = board.getSideToMove();
+            for (int i = 0; i < n; i++) {
+                int cell = m[i];
+                int s = centrality[cell] + history[side][cell];
+                if (id > 0) s += (int) ((board.getHash() >>> (cell & 31)) & id);
+                if (cell == ttMove) s += 1 << 28;
+                else if (cell == killers[ply][0]) s += 1 << 26;
+                else if (cell == killers[ply][1]) s += 1 << 25;
+                score[i] = s;
+            }
+            for (int i = 1; i < n; i++) {
+                int cell = m[i], s = score[i];
+                int j = i - 1;
+                while (j >= 0 && score[j] < s) {
+                    m[j + 1] = m[j];
+                    score[j + 1] = score[j];
+                    j--;
+                }
+                m[j + 1] = cell;
+                score[j + 1] = s;
+            }
+        }
+
+        // Open lines only count for the side that can still complete them
+        private int evaluate() {
+            Board.Lines lines = board.lines();
+            int me = board.getSideToMove(), them = me ^ 1;
+            long myLo = board.bitsLo(me), myHi = board.bitsHi(me);
+            long theirLo = board.bitsLo(them), theirHi = board.bitsHi(them);
+            int score = 0;
+            for (int m = 0; m < lines.count; m++) {
+                long lo = lines.maskLo[m], hi = lines.maskHi[m];
+                int mine = Long.bitCount(myLo & lo) + Long.bitCount(myHi & hi);
+                int theirs = Long.bitCount(theirLo & lo) + Long.bitCount(theirHi & hi);
+                if (theirs == 0) score += LINE_WEIGHT[mine];
+                else if (mine == 0) score -= LINE_WEIGHT[theirs];
+            }
+            return Math.max(-EVAL_LIMIT, Math.min(EVAL_LIMIT, score));
+        }
+    }
+
+    // Win scores are stored relative to the node so they stay valid at any ply
+    private static int toTable(int score, int ply) {
+        if (score >= WIN - MAX_PLY) return score + ply;
+        if (score <= -WIN + MAX_PLY) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= WIN - MAX_PLY) return score - ply;
+        if (score <= -WIN + MAX_PLY) return score + ply;
+        return score;
+    }
+
+    private static int[] centrality(int gridSize) {
+        int[] c = new int[gridSize * gridSize];
+        double mid = (gridSize - 1) / 2.0;
+        for (int i = 0; i < c.length; i++) {
+            double d = Math.abs(i / gridSize - mid) + Math.abs(i % gridSize - mid);
+            c[i] = (int) (2 * gridSize - 2 * d);
+        }
+        return c;
+    }
+
+    @Override
+    public String toString() {
+        return "alphabeta(" + budgetNanos / 1_000_000 + "ms"
+                + (searchers.length > 1 ? ", " + searchers.length + " threads" : "") + ")";
+    }
+}
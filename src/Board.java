@@ -0,0 +1,279 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Bitboard for grids up to 10x10: one pair of longs per side, cell = row * gridSize + col.
+// Cells 0..63 live in the low word and 64..99 in the high word.
+public class Board {
+    public static final int MAX_SIZE = 10;
+    public static final int X = 0, O = 1;
+
+    private final int gridSize;
+    private final int winLength;
+    private final int cells;
+    private final long fullLo, fullHi;
+    private final Lines lines;
+    private final long[] lo = new long[2];
+    private final long[] hi = new long[2];
+    private int sideToMove = X;
+    private int moveCount;
+    private long hash;
+
+    public Board(int gridSize, int winLength) {
+        if (gridSize < 3 || gridSize > MAX_SIZE) {
+            throw new IllegalArgumentException("Grid size must be between 3 and " + MAX_SIZE);
+        }
+        if (winLength < 3 || winLength > gridSize) {
+            throw new IllegalArgumentException("Win length must be between 3 and the grid size");
+        }
+        this.gridSize = gridSize;
+        this.winLength = winLength;
+        this.cells = gridSize * gridSize;
+        this.fullLo = cells >= 64 ? -1L : (1L << cells) - 1;
+        this.fullHi = cells > 64 ? (1L << (cells - 64)) - 1 : 0L;
+        this.lines = Lines.of(gridSize, winLength);
+    }
+
+    public Board(Board other) {
+        this(other.gridSize, other.winLength);
+        copyFrom(other);
+    }
+
+    public void copyFrom(Board other) {
+        lo[X] = other.lo[X];
+        lo[O] = other.lo[O];
+        hi[X] = other.hi[X];
+        hi[O] = other.hi[O];
+        sideToMove = other.sideToMove;
+        moveCount = other.moveCount;
+        hash = other.hash;
+    }
+
+    public void reset(int firstSide) {
+        lo[X] = lo[O] = hi[X] = hi[O] = 0L;
+        sideToMove = firstSide;
+        moveCount = 0;
+        hash = firstSide == O ? Zobrist.SIDE : 0L;
+    }
+
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    public int getCellCount() {
+        return cells;
+    }
+
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    // Zobrist hash of the position, kept up to date by play() and undo()
+    public long getHash() {
+        return hash;
+    }
+
+    public int cell(int row, int col) {
+        return row * gridSize + col;
+    }
+
+    public int row(int cell) {
+        return cell / gridSize;
+    }
+
+    public int col(int cell) {
+        return cell % gridSize;
+    }
+
+    public boolean isEmpty(int cell) {
+        return occupied(cell) == 0L;
+    }
+
+    // -1 when empty, otherwise X or O
+    public int get(int cell) {
+        if (cell < 64) {
+            long bit = 1L << cell;
+            return (lo[X] & bit) != 0 ? X : (lo[O] & bit) != 0 ? O : -1;
+        }
+        long bit = 1L << (cell - 64);
+        return (hi[X] & bit) != 0 ? X : (hi[O] & bit) != 0 ? O : -1;
+    }
+
+    private long occupied(int cell) {
+        return cell < 64 ? (lo[X] | lo[O]) & (1L << cell) : (hi[X] | hi[O]) & (1L << (cell - 64));
+    }
+
+    // Places a mark for the side to move and hands the turn over.
+    // Returns true if the move completed a line.
+    public boolean play(int cell) {
+        int side = sideToMove;
+        if (cell < 64) lo[side] |= 1L << cell;
+        else hi[side] |= 1L << (cell - 64);
+        moveCount++;
+        sideToMove = side ^ 1;
+        hash ^= Zobrist.CELL[side][cell] ^ Zobrist.SIDE;
+        return isWinningCell(cell, side);
+    }
+
+    public void undo(int cell) {
+        int side = sideToMove ^ 1;
+        if (cell < 64) lo[side] &= ~(1L << cell);
+        else hi[side] &= ~(1L << (cell - 64));
+        moveCount--;
+        sideToMove = side;
+        hash ^= Zobrist.CELL[side][cell] ^ Zobrist.SIDE;
+    }
+
+    // True if one of the lines through cell is fully owned by side
+    public boolean isWinningCell(int cell, int side) {
+        long l = lo[side], h = hi[side];
+        long[] maskLo = lines.maskLo, maskHi = lines.maskHi;
+        int[] idx = lines.cellLines;
+        for (int i = lines.cellStart[cell], end = lines.cellStart[cell + 1]; i < end; i++) {
+            int m = idx[i];
+            if ((l & maskLo[m]) == maskLo[m] && (h & maskHi[m]) == maskHi[m]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Full scan over every line, for callers without a last move at hand
+    public int winner() {
+        for (int side = X; side <= O; side++) {
+            long l = lo[side], h = hi[side];
+            for (int m = 0; m < lines.count; m++) {
+                if ((l & lines.maskLo[m]) == lines.maskLo[m] && (h & lines.maskHi[m]) == lines.maskHi[m]) {
+                    return side;
+                }
+            }
+        }
+        return -1;
+    }
+
+    public boolean isFull() {
+        return moveCount == cells;
+    }
+
+    public long emptyLo() {
+        return ~(lo[X] | lo[O]) & fullLo;
+    }
+
+    public long emptyHi() {
+        return ~(hi[X] | hi[O]) & fullHi;
+    }
+
+    public long bitsLo(int side) {
+        return lo[side];
+    }
+
+    public long bitsHi(int side) {
+        return hi[side];
+    }
+
+    // Writes the empty cells into out and returns how many there are
+    public int legalMoves(int[] out) {
+        int n = 0;
+        for (long bits = emptyLo(); bits != 0; bits &= bits - 1) {
+            out[n++] = Long.numberOfTrailingZeros(bits);
+        }
+        for (long bits = emptyHi(); bits != 0; bits &= bits - 1) {
+            out[n++] = 64 + Long.numberOfTrailingZeros(bits);
+        }
+        return n;
+    }
+
+    public static char toMark(int side) {
+        return side == X ? 'X' : side == O ? 'O' : ' ';
+    }
+
+    public static int toSide(char mark) {
+        return mark == 'X' ? X : mark == 'O' ? O : -1;
+    }
+
+    Lines lines() {
+        return lines;
+    }
+
+    // Fixed seed so hashes are stable across runs and processes
+    static final class Zobrist {
+        static final long[][] CELL = new long[2][MAX_SIZE * MAX_SIZE];
+        static final long SIDE;
+
+        static {
+            SplittableRandom random = new SplittableRandom(0x7ac7ac70eL);
+            for (long[] keys : CELL) {
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = random.nextLong();
+                }
+            }
+            SIDE = random.nextLong();
+        }
+    }
+
+    // Every winning window for a (gridSize, winLength) pair, shared by all boards of that shape.
+    // cellLines[cellStart[c]..cellStart[c + 1]) lists the windows that contain cell c.
+    static final class Lines {
+        private static final Lines[][] CACHE = new Lines[MAX_SIZE + 1][MAX_SIZE + 1];
+
+        final int count;
+        final long[] maskLo, maskHi;
+        final int[] cellStart, cellLines;
+
+        static synchronized Lines of(int gridSize, int winLength) {
+            Lines l = CACHE[gridSize][winLength];
+            if (l == null) {
+                l = new Lines(gridSize, winLength);
+                CACHE[gridSize][winLength] = l;
+            }
+            return l;
+        }
+
+        private Lines(int n, int k) {
+            int[][] dirs = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+            int max = 4 * n * n;
+            long[] tmpLo = new long[max], tmpHi = new long[max];
+            int[] perCell = new int[n * n];
+            int c = 0;
+            for (int[] d : dirs) {
+                for (int r = 0; r < n; r++) {
+                    for (int col = 0; col < n; col++) {
+                        int endR = r + d[0] * (k - 1), endC = col + d[1] * (k - 1);
+                        if (endR < 0 || endR >= n || endC < 0 || endC >= n) continue;
+                        for (int i = 0; i < k; i++) {
+                            int cell = (r + d[0] * i) * n + col + d[1] * i;
+                            if (cell < 64) tmpLo[c] |= 1L << cell;
+                            else tmpHi[c] |= 1L << (cell - 64);
+                            perCell[cell]++;
+                        }
+                        c++;
+                    }
+                }
+            }
+            count = c;
+            maskLo = Arrays.copyOf(tmpLo, c);
+            maskHi = Arrays.copyOf(tmpHi, c);
+            cellStart = new int[n * n + 1];
+            for (int i = 0; i < n * n; i++) {
+                cellStart[i + 1] = cellStart[i] + perCell[i];
+            }
+            cellLines = new int[cellStart[n * n]];
+            int[] fill = Arrays.copyOf(cellStart, n * n);
+            for (int m = 0; m < c; m++) {
+                for (long bits = maskLo[m]; bits != 0; bits &= bits - 1) {
+                    cellLines[fill[Long.numberOfTrailingZeros(bits)]++] = m;
+                }
+                for (long bits = maskHi[m]; bits != 0; bits &= bits - 1) {
+                    cellLines[fill[64 + Long.numberOfTrailingZeros(bits)]++] = m;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The playing grid as one painted component instead of a JButton per cell. It keeps
+// its pixel size whatever the grid size, so a reset never needs a relayout. reset()
+// and setMark() may be called from any thread: they only update the marks and the
+// dirty cell bits, and a single pending EDT task repaints just the dirty cells.
+public class BoardComponent extends JComponent {
+    private static final int BOARD_PIXELS = 480;
+    private static final Color LINE_COLOR = new Color(0x555555);
+    private static final Color X_COLOR = new Color(0x2f6fb0);
+    private static final Color O_COLOR = new Color(0xc0392b);
+
+    public interface CellListener {
+        void cellClicked(int row, int col);
+    }
+
+    private final AtomicIntegerArray marks = new AtomicIntegerArray(Board.MAX_SIZE * Board.MAX_SIZE);
+    private final AtomicLong dirtyLo = new AtomicLong();
+    private final AtomicLong dirtyHi = new AtomicLong();
+    private final AtomicBoolean repaintScheduled = new AtomicBoolean();
+    private volatile boolean fullRepaint;
+    private volatile int gridSize = 3;
+    private volatile boolean playable;
+    private CellListener listener;
+
+    public BoardComponent() {
+        setPreferredSize(new Dimension(BOARD_PIXELS, BOARD_PIXELS));
+        setOpaque(true);
+        setBackground(Color.WHITE);
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                int n = gridSize;
+                int cellSize = BOARD_PIXELS / n;
+                int col = e.getX() / cellSize, row = e.getY() / cellSize;
+                if (playable && listener != null && e.getX() >= 0 && e.getY() >= 0 && row < n && col < n) {
+                    listener.cellClicked(row, col);
+                }
+            }
+        });
+    }
+
+    public void setCellListener(CellListener listener) {
+        this.listener = listener;
+    }
+
+    // Clears the marks for a new game of the given size
+    public void reset(int size) {
+        for (int i = 0; i < marks.length(); i++) marks.set(i, ' ');
+        gridSize = size;
+        fullRepaint = true;
+        scheduleRepaint();
+    }
+
+    public void setMark(int row, int col, char mark) {
+        int cell = row * gridSize + col;
+        marks.set(cell, mark);
+        if (cell < 64) dirtyLo.getAndAccumulate(1L << cell, (a, b) -> a | b);
+        else dirtyHi.getAndAccumulate(1L << (cell - 64), (a, b) -> a | b);
+        scheduleRepaint();
+    }
+
+    public void setPlayable(boolean playable) {
+        this.playable = playable;
+    }
+
+    private void scheduleRepaint() {
+        if (repaintScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::repaintDirty);
+        }
+    }
+
+    private void repaintDirty() {
+        repaintScheduled.set(false);
+        long lo = dirtyLo.getAndSet(0), hi = dirtyHi.getAndSet(0);
+        if (fullRepaint) {
+            fullRepaint = false;
+            repaint();
+            return;
+        }
+        int n = gridSize;
+        int cellSize = BOARD_PIXELS / n;
+        for (; lo != 0; lo &= lo - 1) {
+            int cell = Long.numberOfTrailingZeros(lo);
+            repaint(cell % n * cellSize, cell / n * cellSize, cellSize, cellSize);
+        }
+        for (; hi != 0; hi &= hi - 1) {
+            int cell = 64 + Long.numberOfTrailingZeros(hi);
+            repaint(cell % n * cellSize, cell / n * cellSize, cellSize, cellSize);
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        Graphics2D g = (Graphics2D) graphics.create();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        int n = gridSize;
+        int cellSize = BOARD_PIXELS / n;
+        int pad = cellSize / 5;
+        g.setStroke(new BasicStroke(Math.max(2f, cellSize / 12f), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        // Only the cells that intersect the clip
+        int firstRow = Math.max(0, clip.y / cellSize), lastRow = Math.min(n - 1, (clip.y + clip.height) / cellSize);
+        int firstCol = Math.max(0, clip.x / cellSize), lastCol = Math.min(n - 1, (clip.x + clip.width) / cellSize);
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstCol; c <= lastCol; c++) {
+                int x = c * cellSize, y = r * cellSize;
+                int mark = marks.get(r * n + c);
+                if (mark == 'X') {
+                    g.setColor(X_COLOR);
+                    g.drawLine(x + pad, y + pad, x + cellSize - pad, y + cellSize - pad);
+                    g.drawLine(x + cellSize - pad, y + pad, x + pad, y + cellSize - pad);
+                } else if (mark == 'O') {
+                    g.setColor(O_COLOR);
+                    g.drawOval(x + pad, y + pad, cellSize - 2 * pad, cellSize - 2 * pad);
+                }
+            }
+        }
+
+        g.setColor(LINE_COLOR);
+        g.setStroke(new BasicStroke(2f));
+        for (int i = 1; i < n; i++) {
+            g.drawLine(i * cellSize, 0, i * cellSize, n * cellSize);
+            g.drawLine(0, i * cellSize, n * cellSize, i * cellSize);
+        }
+        g.dispose();
+    }
+}
@@ -0,0 +1,71 @@
+// Answers from a shared EvalCache before asking the wrapped strategy. Positions are reduced
+// to their smallest hash under the 8 board symmetries, so a mirrored or rotated opening is
+// the same entry; the move is stored in that canonical orientation and mapped back on a hit.
+// Every game sharing a cache must use the same engine settings behind it.
+public class CachedStrategy implements Strategy {
+    private final EvalCache cache;
+    private final Strategy delegate;
+    private int gridSize;
+    private int winLength;
+    private int[][] perm;
+    private int[][] inverse;
+    private long salt;
+
+    public CachedStrategy(EvalCache cache, Strategy delegate) {
+        this.cache = cache;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public int selectMove(Board board) {
+        if (perm == null || board.getGridSize() != gridSize || board.getWinLength() != winLength) {
+            gridSize = board.getGridSize();
+            winLength = board.getWinLength();
+            perm = SolutionTable.symmetries(gridSize);
+            inverse = SolutionTable.invert(perm);
+            // Boards of different shapes must never share an entry
+            salt = (gridSize * 16L + winLength) * 0x9E3779B97F4A7C15L;
+        }
+        int sym = 0;
+        long key = hash(board, perm[0]);
+        for (int s = 1; s < perm.length; s++) {
+            long k = hash(board, perm[s]);
+            if (k < key) {
+                key = k;
+                sym = s;
+            }
+        }
+
+        int move = cache.get(key);
+        if (move >= 0 && move < board.getCellCount()) {
+            int cell = inverse[sym][move];
+            if (board.isEmpty(cell)) return cell;
+        }
+        int cell = delegate.selectMove(board);
+        cache.put(key, perm[sym][cell]);
+        return cell;
+    }
+
+    public EvalCache getCache() {
+        return cache;
+    }
+
+    private long hash(Board board, int[] p) {
+        long h = salt ^ (board.getSideToMove() == Board.O ? Board.Zobrist.SIDE : 0L);
+        for (int side = Board.X; side <= Board.O; side++) {
+            long[] keys = Board.Zobrist.CELL[side];
+            for (long bits = board.bitsLo(side); bits != 0; bits &= bits - 1) {
+                h ^= keys[p[Long.numberOfTrailingZeros(bits)]];
+            }
+            for (long bits = board.bitsHi(side); bits != 0; bits &= bits - 1) {
+                h ^= keys[p[64 + Long.numberOfTrailingZeros(bits)]];
+            }
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "cached(" + delegate + ")";
+    }
+}
@@ -0,0 +1,74 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Headless GameListener for bot-driven network play: prints to stdout, starts the
+// rematch on its own and quits after a fixed number of games. Nothing here touches AWT.
+public class ConsoleListener implements GameListener {
+    private final int games;
+    private final ExecutorService rematches = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "console-rematch");
+        t.setDaemon(true);
+        return t;
+    });
+    private TicTacToeGame game;
+    private int played, wins, losses, draws;
+    private volatile boolean done;
+
+    public ConsoleListener(int games) {
+        this.games = games;
+    }
+
+    public void setGame(TicTacToeGame game) {
+        this.game = game;
+    }
+
+    @Override
+    public void gameStarted(int gridSize, String info) {
+        System.out.printf("Game %d on %dx%d: %s%n", played + 1, gridSize, gridSize, info);
+    }
+
+    @Override
+    public void movePlayed(int row, int col, char mark) {
+        // Only results are printed
+    }
+
+    @Override
+    public void statusChanged(String info) {
+        if (!info.startsWith("Turn ")) System.out.println(info);
+    }
+
+    @Override
+    public void gameOver(String result) {
+        played++;
+        if (result.startsWith("You win")) wins++;
+        else if (result.startsWith("You lose")) losses++;
+        else draws++;
+        System.out.printf("Game %d: %s (won %d, lost %d, drawn %d)%n", played, result, wins, losses, draws);
+        if (played >= games) {
+            done = true;
+            rematches.execute(game::quitGame);
+        }
+        else {
+            rematches.execute(game::startRematch);
+        }
+    }
+
+    @Override
+    public void gameFailed(String msg) {
+        // The opponent leaving after the last game is not a failure
+        if (done) return;
+        System.err.println(msg);
+        System.exit(1);
+    }
+
+    @Override
+    public void connected(String msg) {
+        System.out.println(msg);
+    }
+
+    @Override
+    public void connectionFailed(String msg, String info) {
+        System.err.println(msg);
+        System.exit(1);
+    }
+}
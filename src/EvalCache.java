@@ -0,0 +1,106 @@
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded cache of chosen moves keyed by symmetry-canonical position hashes, meant to be
+// shared by every game using the same engine settings. Like TranspositionTable it is two
+// parallel long arrays read and written without locks, each slot holding key ^ entry so
+// a torn slot just misses. Slots are grouped in sets of WAYS; a full set evicts with
+// CLOCK: a per-set hand sweeps past recently hit slots, clearing their bits, and takes
+// the first one that was not. The arrays are sized once from the memory cap.
+// Entry layout: valid (1) | move (8)
+final class EvalCache {
+    static final int WAYS = 8;
+    // keys + entries + reference bit
+    static final int BYTES_PER_SLOT = 8 + 8 + 1;
+
+    private static final long VALID = 1L << 63;
+
+    private final long[] keys;
+    private final long[] entries;
+    private final boolean[] referenced;
+    private final byte[] hands;
+    private final int setMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    EvalCache(int sizeMb) {
+        long budget = (long) sizeMb << 20;
+        int sets = Integer.highestOneBit((int) Math.max(1, Math.min(1 << 24, budget / (BYTES_PER_SLOT * WAYS + 1))));
+        keys = new long[sets * WAYS];
+        entries = new long[sets * WAYS];
+        referenced = new boolean[sets * WAYS];
+        hands = new byte[sets];
+        setMask = sets - 1;
+    }
+
+    // Returns the cached move for key, or -1
+    int get(long key) {
+        int base = (int) (key & setMask) * WAYS;
+        for (int i = base; i < base + WAYS; i++) {
+            long e = entries[i];
+            if (e != 0 && (keys[i] ^ e) == key) {
+                if (!referenced[i]) referenced[i] = true;
+                hits.increment();
+                return (int) e & 0xFF;
+            }
+        }
+        misses.increment();
+        return -1;
+    }
+
+    void put(long key, int move) {
+        int set = (int) (key & setMask);
+        int base = set * WAYS;
+        int slot = -1;
+        for (int i = base; i < base + WAYS; i++) {
+            long e = entries[i];
+            if (e == 0 || (keys[i] ^ e) == key) {
+                slot = i;
+                break;
+            }
+        }
+        if (slot < 0) {
+            // At most one full sweep clears every bit, so the second pass always finds a victim
+            int hand = hands[set] & 0xFF;
+            for (int n = 0; n < 2 * WAYS; n++, hand = (hand + 1) % WAYS) {
+                if (!referenced[base + hand]) break;
+                referenced[base + hand] = false;
+            }
+            slot = base + hand;
+            hands[set] = (byte) ((hand + 1) % WAYS);
+            evictions.increment();
+        }
+        long entry = VALID | (move & 0xFF);
+        referenced[slot] = false;
+        entries[slot] = entry;
+        keys[slot] = key ^ entry;
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    long getEvictions() {
+        return evictions.sum();
+    }
+
+    int getCapacity() {
+        return keys.length;
+    }
+
+    long getBytes() {
+        return (long) keys.length * BYTES_PER_SLOT + hands.length;
+    }
+
+    @Override
+    public String toString() {
+        long h = getHits(), m = getMisses();
+        return String.format("cache %d hits, %d misses (%.1f%% hit), %d evictions, %d slots in %.1f MB",
+                h, m, 100.0 * h / Math.max(1, h + m), getEvictions(), getCapacity(), getBytes() / 1048576.0);
+    }
+}
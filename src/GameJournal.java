@@ -0,0 +1,264 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+
+// Append-only log of finished games in fixed 128 byte records:
+//   0  type 'G'            1  version         2  grid size      3  win length
+//   4  first side (0 X, 1 O)                  5  result (0 X, 1 O, 2 draw, 3 aborted)
+//   6  move count          7  how it ended (0 on the board, 1 on time)
+//   8  player X (int)     12  player O (int)  16  start millis (long)
+//  24  duration millis (int)                  28  moves, one cell per byte, up to 100
+// record() only copies into an in-memory batch; a background thread writes the
+// batches and forces them to disk every flush interval (group fsync).
+public class GameJournal implements Closeable {
+    public static final int RECORD_SIZE = 128;
+    public static final int VERSION = 1;
+    public static final int MAX_MOVES = RECORD_SIZE - 28;
+
+    public static final int RESULT_X = 0, RESULT_O = 1, RESULT_DRAW = 2, RESULT_ABORTED = 3;
+    public static final int ENDED_ON_BOARD = 0, ENDED_ON_TIME = 1;
+    public static final int PLAYER_UNKNOWN = 0, PLAYER_HUMAN = 1, PLAYER_REMOTE = 2, PLAYER_COMPUTER = 3;
+
+    private static final byte TYPE_GAME = 'G';
+    private static final int BATCH_RECORDS = 512;
+
+    private final FileChannel channel;
+    private final long flushIntervalMillis;
+    private final ArrayDeque<ByteBuffer> full = new ArrayDeque<>();
+    private final ArrayDeque<ByteBuffer> spare = new ArrayDeque<>();
+    private final Thread flusher;
+    private ByteBuffer active = newBatch();
+    private boolean closed;
+
+    public GameJournal(Path path, long flushIntervalMillis) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // Opens the journal named by -Dtictactoe.journal (default journal/games.bin),
+    // or returns null if it is set to "off" or can't be opened
+    public static GameJournal openDefault() {
+        return open(System.getProperty("tictactoe.journal", "journal/games.bin"));
+    }
+
+    public static GameJournal open(String path) {
+        if (path.equals("off")) {
+            return null;
+        }
+        try {
+            return new GameJournal(Path.of(path), 200);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public void record(int gridSize, int winLength, int firstSide, int result, int ended, int playerX, int playerO,
+                       long startMillis, long endMillis, byte[] moves, int moveCount) {
+        int count = Math.min(moveCount, MAX_MOVES);
+        synchronized (this) {
+            if (closed) return;
+            if (active.remaining() < RECORD_SIZE) {
+                full.add(active);
+                active = spare.isEmpty() ? newBatch() : spare.poll();
+                notifyAll();
+            }
+            ByteBuffer b = active;
+            int start = b.position();
+            b.put(TYPE_GAME).put((byte) VERSION).put((byte) gridSize).put((byte) winLength)
+                    .put((byte) firstSide).put((byte) result).put((byte) count).put((byte) ended)
+                    .putInt(playerX).putInt(playerO)
+                    .putLong(startMillis).putInt((int) Math.min(Integer.MAX_VALUE, endMillis - startMillis))
+                    .put(moves, 0, count);
+            // Batches are reused, so the unused tail would otherwise keep an older game's moves
+            while (b.position() < start + RECORD_SIZE) b.put((byte) 0);
+        }
+    }
+
+    private void flushLoop() {
+        ArrayDeque<ByteBuffer> toWrite = new ArrayDeque<>();
+        while (true) {
+            boolean stop;
+            synchronized (this) {
+                if (!closed && full.isEmpty()) {
+                    try {
+                        wait(flushIntervalMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                toWrite.addAll(full);
+                full.clear();
+                if (active.position() > 0) {
+                    toWrite.add(active);
+                    active = spare.isEmpty() ? newBatch() : spare.poll();
+                }
+                stop = closed;
+            }
+            if (!toWrite.isEmpty()) {
+                try {
+                    for (ByteBuffer b : toWrite) {
+                        b.flip();
+                        while (b.hasRemaining()) channel.write(b);
+                    }
+                    channel.force(false);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                synchronized (this) {
+                    for (ByteBuffer b : toWrite) {
+                        b.clear();
+                        spare.add(b);
+                    }
+                }
+                toWrite.clear();
+            }
+            if (stop) return;
+        }
+    }
+
+    // Writes out everything recorded so far and closes the file
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private static ByteBuffer newBatch() {
+        return ByteBuffer.allocateDirect(RECORD_SIZE * BATCH_RECORDS);
+    }
+
+    public interface Visitor {
+        // The record is a view that is only valid during the call
+        void game(Record record);
+    }
+
+    // Streams every record in the file through the visitor, mapping it a window at a time.
+    // Returns the number of records visited.
+    public static long replay(Path path, Visitor visitor) throws IOException {
+        final long window = (long) RECORD_SIZE * 512 * 1024;
+        Record record = new Record();
+        long visited = 0;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size() - ch.size() % RECORD_SIZE;
+            for (long offset = 0; offset < size; offset += window) {
+                long length = Math.min(window, size - offset);
+                MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                for (int pos = 0; pos < length; pos += RECORD_SIZE) {
+                    if (map.get(pos) != TYPE_GAME) continue;
+                    record.buf = map;
+                    record.base = pos;
+                    visitor.game(record);
+                    visited++;
+                }
+            }
+        }
+        return visited;
+    }
+
+    // Flyweight over one record of a mapped journal, or of any buffer holding records
+    public static final class Record {
+        private ByteBuffer buf;
+        private int base;
+
+        public Record at(ByteBuffer buf, int base) {
+            this.buf = buf;
+            this.base = base;
+            return this;
+        }
+
+        // Copies the raw record out, so it can outlive the visit
+        public void copyTo(byte[] dst, int offset) {
+            buf.get(base, dst, offset, RECORD_SIZE);
+        }
+
+        public int gridSize() {
+            return buf.get(base + 2);
+        }
+
+        public int winLength() {
+            return buf.get(base + 3);
+        }
+
+        public int firstSide() {
+            return buf.get(base + 4);
+        }
+
+        public int result() {
+            return buf.get(base + 5);
+        }
+
+        public int moveCount() {
+            return buf.get(base + 6) & 0xFF;
+        }
+
+        public boolean endedOnTime() {
+            return buf.get(base + 7) == ENDED_ON_TIME;
+        }
+
+        public int playerX() {
+            return buf.getInt(base + 8);
+        }
+
+        public int playerO() {
+            return buf.getInt(base + 12);
+        }
+
+        public long startMillis() {
+            return buf.getLong(base + 16);
+        }
+
+        public int durationMillis() {
+            return buf.getInt(base + 24);
+        }
+
+        public int move(int i) {
+            return buf.get(base + 28 + i) & 0xFF;
+        }
+
+        // Plays the game through the rules engine (board must match the record's shape) and
+        // returns the result it actually produces, which callers can check against result().
+        // A game that ended on time must stop short of a result on the board, and is lost by
+        // the side left to move.
+        public int replay(Board board) {
+            if (firstSide() != Board.X && firstSide() != Board.O) return RESULT_ABORTED;
+            board.reset(firstSide());
+            int n = moveCount();
+            int cells = board.getCellCount();
+            for (int i = 0; i < n; i++) {
+                int cell = move(i);
+                if (cell >= cells || !board.isEmpty(cell)) {
+                    return RESULT_ABORTED;
+                }
+                int side = board.getSideToMove();
+                if (board.play(cell)) {
+                    return i == n - 1 && !endedOnTime() ? side : RESULT_ABORTED;
+                }
+            }
+            if (endedOnTime()) return board.isFull() ? RESULT_ABORTED : board.getSideToMove() ^ 1;
+            return board.isFull() ? RESULT_DRAW : RESULT_ABORTED;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+// Everything TicTacToeGame and its network tell the outside world. TicTacToeGUI is
+// the Swing implementation and ConsoleListener the headless one; calls may come from
+// any thread, so implementations hop to their own UI thread themselves.
+public interface GameListener {
+    void gameStarted(int gridSize, String info);
+
+    void movePlayed(int row, int col, char mark);
+
+    void statusChanged(String info);
+
+    // result is "You win.", "You lose." or "Draw."
+    void gameOver(String result);
+
+    // The connection to the opponent is gone; the game cannot continue
+    void gameFailed(String msg);
+
+    void connected(String msg);
+
+    // Hosting or connecting did not work out; the user may try again
+    void connectionFailed(String msg, String info);
+}
@@ -0,0 +1,66 @@
+import java.util.SplittableRandom;
+
+// Shows that Gomoku move cost stays flat as the board grows: random games measure
+// play + undo + candidate generation, then the engine plays itself on each size.
+public class GomokuBenchmark {
+    private final int winLength;
+    private final long budgetMillis;
+
+    public GomokuBenchmark(int winLength, long budgetMillis) {
+        this.winLength = winLength;
+        this.budgetMillis = budgetMillis;
+    }
+
+    public void run(int[] sizes, int games) {
+        System.out.printf("%d in a row, %dms per move%n", winLength, budgetMillis);
+        System.out.println(" size  play+undo(ns)  nodes/s   depth  moves  result");
+        for (int size : sizes) {
+            GomokuBoard board = new GomokuBoard(size, winLength);
+            // Warm up, then time
+            moveCost(board, 2000);
+            double nanos = moveCost(board, 20000);
+
+            GomokuStrategy[] engines = {new GomokuStrategy(budgetMillis), new GomokuStrategy(budgetMillis)};
+            long nodes = 0, searchNanos = 0, depths = 0, searches = 0, plies = 0;
+            int[] results = new int[3];
+            for (int g = 0; g < games; g++) {
+                board.reset(GomokuBoard.X);
+                while (board.winner() == GomokuBoard.EMPTY && !board.isFull()) {
+                    GomokuStrategy engine = engines[(board.getSideToMove() + g) & 1];
+                    long start = System.nanoTime();
+                    int cell = engine.selectMove(board);
+                    searchNanos += System.nanoTime() - start;
+                    nodes += engine.getNodes();
+                    depths += engine.getCompletedDepth();
+                    searches++;
+                    board.play(cell);
+                }
+                plies += board.getMoveCount();
+                results[board.winner() == GomokuBoard.EMPTY ? 2 : board.winner()]++;
+            }
+            System.out.printf("%5d %14.0f %8.0f %7.1f %6d  X %d, O %d, draws %d%n",
+                    size, nanos, nodes / (searchNanos / 1e9), depths / (double) Math.max(1, searches),
+                    plies / Math.max(1, games), results[0], results[1], results[2]);
+        }
+    }
+
+    // Average cost of one play, one undo and one candidate list, along random games
+    private static double moveCost(GomokuBoard board, int games) {
+        SplittableRandom random = new SplittableRandom(7);
+        int[] moves = new int[board.getCellCount()];
+        long ops = 0;
+        long start = System.nanoTime();
+        for (int g = 0; g < games; g++) {
+            board.reset(GomokuBoard.X);
+            while (board.winner() == GomokuBoard.EMPTY && !board.isFull()) {
+                int n = board.candidates(moves);
+                int cell = moves[random.nextInt(n)];
+                board.play(cell);
+                board.undo(cell);
+                board.play(cell);
+                ops++;
+            }
+        }
+        return (System.nanoTime() - start) / (double) ops;
+    }
+}
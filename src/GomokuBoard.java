@@ -0,0 +1,276 @@
+import java.util.Arrays;
+
+// Board for Gomoku-sized games (up to 19x19, five in a row) where the 128 bit Board
+// can't go. Everything is kept up to date incrementally, so play() and undo() only
+// touch the neighbourhood of the move and cost the same on any board size:
+//   - per window (winLength cells in a row in one direction) the stone count of each
+//     side, which gives win detection and the threats the engine looks for
+//   - a running evaluation built from those counts
+//   - the candidate moves: empty cells within two of any stone
+public class GomokuBoard {
+    public static final int MAX_SIZE = 19;
+    public static final int X = Board.X, O = Board.O, EMPTY = -1;
+
+    private static final int RADIUS = 2;
+    private static final int[][] DIRECTIONS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+
+    private final int size;
+    private final int winLength;
+    private final int cells;
+    // Windows covering each cell: windowIndex[windowStart[cell] .. windowStart[cell + 1])
+    private final int[] windowStart;
+    private final int[] windowIndex;
+    private final int[][] count;
+    private final int[] weight;
+    private final int[] neighbours;
+    private final int[] neighbourStart;
+
+    private final byte[] stones;
+    private final int[] history;
+    private final int[] near;
+    private final int[] candidates;
+    private final int[] candidatePos;
+    private int candidateCount;
+    private int moveCount;
+    private int sideToMove = X;
+    private int winner = EMPTY;
+    private int winningPly;
+    private int eval;
+
+    public GomokuBoard(int size, int winLength) {
+        if (size < 5 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Gomoku board size must be between 5 and " + MAX_SIZE);
+        }
+        if (winLength < 3 || winLength > size) {
+            throw new IllegalArgumentException("Win length must be between 3 and the board size");
+        }
+        this.size = size;
+        this.winLength = winLength;
+        this.cells = size * size;
+        this.stones = new byte[cells];
+        this.history = new int[cells];
+        this.near = new int[cells];
+        this.candidates = new int[cells];
+        this.candidatePos = new int[cells];
+
+        // Every window, then inverted into a per-cell list
+        int[] perCell = new int[cells + 1];
+        int windows = 0;
+        int[][] members = new int[4 * cells][];
+        for (int[] d : DIRECTIONS) {
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    int endR = r + d[0] * (winLength - 1), endC = c + d[1] * (winLength - 1);
+                    if (endR < 0 || endR >= size || endC < 0 || endC >= size) continue;
+                    int[] m = new int[winLength];
+                    for (int i = 0; i < winLength; i++) {
+                        m[i] = (r + d[0] * i) * size + c + d[1] * i;
+                        perCell[m[i] + 1]++;
+                    }
+                    members[windows++] = m;
+                }
+            }
+        }
+        for (int i = 0; i < cells; i++) perCell[i + 1] += perCell[i];
+        windowStart = perCell.clone();
+        windowIndex = new int[perCell[cells]];
+        int[] fill = Arrays.copyOf(perCell, cells);
+        for (int w = 0; w < windows; w++) {
+            for (int cell : members[w]) windowIndex[fill[cell]++] = w;
+        }
+        count = new int[2][windows];
+
+        // Open windows are worth 8x more for every extra stone
+        weight = new int[winLength + 1];
+        for (int i = 1; i <= winLength; i++) weight[i] = 1 << (3 * (i - 1));
+
+        neighbourStart = new int[cells + 1];
+        int[] tmp = new int[cells * (2 * RADIUS + 1) * (2 * RADIUS + 1)];
+        int n = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            neighbourStart[cell] = n;
+            int r = cell / size, c = cell % size;
+            for (int dr = -RADIUS; dr <= RADIUS; dr++) {
+                for (int dc = -RADIUS; dc <= RADIUS; dc++) {
+                    int nr = r + dr, nc = c + dc;
+                    if ((dr != 0 || dc != 0) && nr >= 0 && nr < size && nc >= 0 && nc < size) {
+                        tmp[n++] = nr * size + nc;
+                    }
+                }
+            }
+        }
+        neighbourStart[cells] = n;
+        neighbours = Arrays.copyOf(tmp, n);
+        reset(X);
+    }
+
+    public void reset(int firstSide) {
+        Arrays.fill(stones, (byte) EMPTY);
+        Arrays.fill(near, 0);
+        Arrays.fill(candidatePos, -1);
+        Arrays.fill(count[X], 0);
+        Arrays.fill(count[O], 0);
+        candidateCount = 0;
+        moveCount = 0;
+        sideToMove = firstSide;
+        winner = EMPTY;
+        eval = 0;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    public int getCellCount() {
+        return cells;
+    }
+
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public int getLastMove() {
+        return moveCount == 0 ? -1 : history[moveCount - 1];
+    }
+
+    public int cell(int row, int col) {
+        return row * size + col;
+    }
+
+    public int get(int cell) {
+        return stones[cell];
+    }
+
+    public boolean isEmpty(int cell) {
+        return stones[cell] == EMPTY;
+    }
+
+    public boolean isFull() {
+        return moveCount == cells;
+    }
+
+    // Side that has completed a line, or EMPTY
+    public int winner() {
+        return winner;
+    }
+
+    // Evaluation from the side to move's point of view
+    public int evaluate() {
+        return sideToMove == X ? eval : -eval;
+    }
+
+    // Returns true if the move completes a line for the side that played it
+    public boolean play(int cell) {
+        int side = sideToMove;
+        stones[cell] = (byte) side;
+        history[moveCount++] = cell;
+        int[] mine = count[side], theirs = count[side ^ 1];
+        int sign = side == X ? 1 : -1;
+        boolean won = false;
+        for (int i = windowStart[cell], end = windowStart[cell + 1]; i < end; i++) {
+            int w = windowIndex[i];
+            int m = mine[w]++;
+            if (theirs[w] == 0) {
+                eval += sign * (weight[m + 1] - weight[m]);
+                if (m + 1 == winLength) won = true;
+            } else if (m == 0) {
+                // The window was theirs alone and is now dead
+                eval += sign * weight[theirs[w]];
+            }
+        }
+        removeCandidate(cell);
+        for (int i = neighbourStart[cell], end = neighbourStart[cell + 1]; i < end; i++) {
+            int n = neighbours[i];
+            if (near[n]++ == 0 && stones[n] == EMPTY) addCandidate(n);
+        }
+        if (won && winner == EMPTY) {
+            winner = side;
+            winningPly = moveCount;
+        }
+        sideToMove = side ^ 1;
+        return won;
+    }
+
+    // Takes back the last move, which must be cell
+    public void undo(int cell) {
+        int side = stones[cell];
+        sideToMove = side;
+        moveCount--;
+        int[] mine = count[side], theirs = count[side ^ 1];
+        int sign = side == X ? 1 : -1;
+        for (int i = windowStart[cell], end = windowStart[cell + 1]; i < end; i++) {
+            int w = windowIndex[i];
+            int m = --mine[w];
+            if (theirs[w] == 0) {
+                eval -= sign * (weight[m + 1] - weight[m]);
+            } else if (m == 0) {
+                eval -= sign * weight[theirs[w]];
+            }
+        }
+        stones[cell] = (byte) EMPTY;
+        for (int i = neighbourStart[cell], end = neighbourStart[cell + 1]; i < end; i++) {
+            int n = neighbours[i];
+            if (--near[n] == 0 && stones[n] == EMPTY) removeCandidate(n);
+        }
+        if (near[cell] > 0) addCandidate(cell);
+        if (winner != EMPTY && moveCount < winningPly) winner = EMPTY;
+    }
+
+    // Empty cells near the stones already played (the centre on an empty board)
+    public int candidates(int[] out) {
+        if (moveCount == 0) {
+            out[0] = cell(size / 2, size / 2);
+            return 1;
+        }
+        System.arraycopy(candidates, 0, out, 0, candidateCount);
+        return candidateCount;
+    }
+
+    // How much playing cell would do for side: the open windows it extends, weighted by
+    // how full they are. Used to order moves; only the windows through cell are read.
+    public int cellValue(int cell, int side) {
+        int[] mine = count[side], theirs = count[side ^ 1];
+        int value = 0;
+        for (int i = windowStart[cell], end = windowStart[cell + 1]; i < end; i++) {
+            int w = windowIndex[i];
+            if (theirs[w] == 0) value += weight[mine[w] + 1];
+        }
+        return value;
+    }
+
+    // True if side playing cell would complete a line
+    public boolean isWinningMove(int cell, int side) {
+        int[] mine = count[side], theirs = count[side ^ 1];
+        for (int i = windowStart[cell], end = windowStart[cell + 1]; i < end; i++) {
+            int w = windowIndex[i];
+            if (theirs[w] == 0 && mine[w] == winLength - 1) return true;
+        }
+        return false;
+    }
+
+    private void addCandidate(int cell) {
+        candidatePos[cell] = candidateCount;
+        candidates[candidateCount++] = cell;
+    }
+
+    private void removeCandidate(int cell) {
+        int pos = candidatePos[cell];
+        if (pos < 0) return;
+        int last = candidates[--candidateCount];
+        candidates[pos] = last;
+        candidatePos[last] = pos;
+        candidatePos[cell] = -1;
+    }
+
+    public static char toMark(int side) {
+        return Board.toMark(side);
+    }
+}
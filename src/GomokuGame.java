@@ -0,0 +1,93 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+// Headless Gomoku on GomokuBoard, the only board that goes past 10x10: a human at the
+// console against GomokuStrategy, or the engine against itself. Cells are typed as
+// column letter then row number, e.g. "h8"; the last move is shown in lower case.
+public class GomokuGame {
+    private final GomokuBoard board;
+    // Per side; null where the human plays
+    private final GomokuStrategy[] engines = new GomokuStrategy[2];
+
+    // humanSide is X, O, or GomokuBoard.EMPTY for engine against engine
+    public GomokuGame(int size, int winLength, long budgetMillis, int humanSide) {
+        board = new GomokuBoard(size, winLength);
+        for (int side = GomokuBoard.X; side <= GomokuBoard.O; side++) {
+            if (side != humanSide) engines[side] = new GomokuStrategy(budgetMillis);
+        }
+    }
+
+    public void run() throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        System.out.printf("%dx%d, %d in a row%n", board.getSize(), board.getSize(), board.getWinLength());
+        board.reset(GomokuBoard.X);
+        while (board.winner() == GomokuBoard.EMPTY && !board.isFull()) {
+            int side = board.getSideToMove();
+            int cell;
+            if (engines[side] != null) {
+                long start = System.nanoTime();
+                cell = engines[side].selectMove(board);
+                System.out.printf("%c plays %s (depth %d, %d nodes, %d ms)%n", GomokuBoard.toMark(side), name(cell),
+                        engines[side].getCompletedDepth(), engines[side].getNodes(),
+                        (System.nanoTime() - start) / 1_000_000);
+            } else {
+                printBoard();
+                cell = readMove(in);
+                if (cell < 0) return;
+            }
+            board.play(cell);
+        }
+        printBoard();
+        int winner = board.winner();
+        System.out.println(winner == GomokuBoard.EMPTY ? "Draw" : GomokuBoard.toMark(winner) + " wins");
+    }
+
+    // Asks until the input names an empty cell; -1 at end of input or on "quit"
+    private int readMove(BufferedReader in) throws IOException {
+        while (true) {
+            System.out.printf("%c to play: ", GomokuBoard.toMark(board.getSideToMove()));
+            String line = in.readLine();
+            if (line == null || line.trim().equalsIgnoreCase("quit")) return -1;
+            int cell = parse(line.trim().toLowerCase());
+            if (cell >= 0 && board.isEmpty(cell)) return cell;
+            System.out.println("Enter an empty cell such as " + name(board.cell(board.getSize() / 2, board.getSize() / 2)));
+        }
+    }
+
+    private int parse(String s) {
+        if (s.length() < 2) return -1;
+        int col = s.charAt(0) - 'a';
+        int row;
+        try {
+            row = Integer.parseInt(s.substring(1)) - 1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        int n = board.getSize();
+        return col < 0 || col >= n || row < 0 || row >= n ? -1 : board.cell(row, col);
+    }
+
+    private String name(int cell) {
+        return (char) ('a' + cell % board.getSize()) + Integer.toString(cell / board.getSize() + 1);
+    }
+
+    private void printBoard() {
+        int n = board.getSize();
+        int last = board.getLastMove();
+        StringBuilder sb = new StringBuilder("   ");
+        for (int c = 0; c < n; c++) sb.append(' ').append((char) ('a' + c));
+        sb.append('\n');
+        for (int r = n - 1; r >= 0; r--) {
+            sb.append(String.format("%3d", r + 1));
+            for (int c = 0; c < n; c++) {
+                int cell = board.cell(r, c);
+                int side = board.get(cell);
+                char mark = side == GomokuBoard.EMPTY ? '.' : GomokuBoard.toMark(side);
+                sb.append(' ').append(cell == last ? Character.toLowerCase(mark) : mark);
+            }
+            sb.append('\n');
+        }
+        System.out.print(sb);
+    }
+}
@@ -0,0 +1,122 @@
+// Alpha-beta with iterative deepening for GomokuBoard. Only the board's candidate
+// cells are searched, and of those only the most promising few by cellValue for
+// both sides, so the cost of a node depends on the width, not on the board size.
+// Immediate wins and forced blocks are played without searching.
+public class GomokuStrategy {
+    static final int WIN = 1_000_000;
+    private static final int MAX_DEPTH = 32;
+
+    private final long budgetNanos;
+    private final int maxDepth;
+    private final int width;
+    private final int[][] moves = new int[MAX_DEPTH + 1][GomokuBoard.MAX_SIZE * GomokuBoard.MAX_SIZE];
+    private final int[][] order = new int[MAX_DEPTH + 1][GomokuBoard.MAX_SIZE * GomokuBoard.MAX_SIZE];
+    private long deadline;
+    private boolean aborted;
+    private long nodes;
+    private int rootBest;
+    private int completedDepth;
+
+    public GomokuStrategy(long budgetMillis) {
+        this(budgetMillis, MAX_DEPTH, 10);
+    }
+
+    public GomokuStrategy(long budgetMillis, int maxDepth, int width) {
+        this.budgetNanos = budgetMillis * 1_000_000L;
+        this.maxDepth = Math.min(maxDepth, MAX_DEPTH);
+        this.width = width;
+    }
+
+    public int selectMove(GomokuBoard board) {
+        deadline = System.nanoTime() + budgetNanos;
+        aborted = false;
+        nodes = 0;
+        completedDepth = 0;
+        int me = board.getSideToMove();
+        int[] m = moves[0];
+        int n = board.candidates(m);
+        for (int i = 0; i < n; i++) {
+            if (board.isWinningMove(m[i], me)) return m[i];
+        }
+        for (int i = 0; i < n; i++) {
+            if (board.isWinningMove(m[i], me ^ 1)) return m[i];
+        }
+
+        int best = m[0];
+        rootBest = -1;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            int score = negamax(board, depth, 0, -WIN - 1, WIN + 1, best);
+            if (aborted) break;
+            best = rootBest;
+            completedDepth = depth;
+            if (Math.abs(score) >= WIN - MAX_DEPTH) break;
+        }
+        return best;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    private int negamax(GomokuBoard board, int depth, int ply, int alpha, int beta, int first) {
+        if ((++nodes & 1023) == 0 && System.nanoTime() - deadline > 0) aborted = true;
+        if (aborted) return 0;
+        // The side that just moved made a line
+        if (board.winner() != GomokuBoard.EMPTY) return -(WIN - ply);
+        if (board.isFull()) return 0;
+        if (depth == 0) return board.evaluate();
+
+        int n = orderMoves(board, ply, first);
+        int best = -WIN - 1;
+        for (int i = 0; i < n; i++) {
+            int cell = moves[ply][i];
+            board.play(cell);
+            int score = -negamax(board, depth - 1, ply + 1, -beta, -alpha, -1);
+            board.undo(cell);
+            if (aborted) return 0;
+            if (score > best) {
+                best = score;
+                if (ply == 0) rootBest = cell;
+            }
+            if (score > alpha) alpha = score;
+            if (alpha >= beta) break;
+        }
+        return best;
+    }
+
+    // Keeps the best `width` candidates, best first: our own threats count a little more
+    // than blocking theirs, and the previous iteration's best move goes first at the root
+    private int orderMoves(GomokuBoard board, int ply, int first) {
+        int[] m = moves[ply];
+        int[] score = order[ply];
+        int n = board.candidates(m);
+        int me = board.getSideToMove();
+        for (int i = 0; i < n; i++) {
+            int cell = m[i];
+            score[i] = cell == first ? Integer.MAX_VALUE
+                    : board.cellValue(cell, me) * 5 / 4 + board.cellValue(cell, me ^ 1);
+        }
+        int keep = Math.min(n, width);
+        for (int i = 0; i < keep; i++) {
+            int top = i;
+            for (int j = i + 1; j < n; j++) {
+                if (score[j] > score[top]) top = j;
+            }
+            int c = m[i], s = score[i];
+            m[i] = m[top];
+            score[i] = score[top];
+            m[top] = c;
+            score[top] = s;
+        }
+        return keep;
+    }
+
+    @Override
+    public String toString() {
+        return "gomoku(" + budgetNanos / 1_000_000 + "ms, width " + width + ")";
+    }
+}
@@ -0,0 +1,397 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Streams a journal through the rules engine and a game-theoretic judge in three stages:
+//   reader (mapped journal -> batches of raw records) -> analyzers (one per core) -> aggregator
+// Batches come from a fixed pool and go back to it once aggregated, so memory stays bounded
+// whatever the corpus size, and a slow stage blocks the ones before it (backpressure).
+// Each position is judged from the side to move's view as won, lost or neither: exactly from
+// a SolutionTable where one has been generated for the board, otherwise only as far as
+// forced results two plies ahead (a win on the board, or a double threat that can't be
+// blocked). A mistake is a move that makes it worse for its mover; the result is forced
+// from the last move after which the judgement never changes again. A record that breaks
+// the judge only counts as invalid; a stage that fails outright stops all the others.
+public class JournalAnalysis {
+    private static final int BATCH_RECORDS = 1024;
+    private static final int NONE = 255;
+    private static final int SHAPES = (Board.MAX_SIZE + 1) * (Board.MAX_SIZE + 1);
+
+    private final Path path;
+    private final int threads;
+    private final Path out;
+    private final SolutionTable[] tables = new SolutionTable[SHAPES];
+
+    private final BlockingQueue<Batch> free;
+    private final BlockingQueue<Batch> work;
+    private final BlockingQueue<Batch> done;
+    private final List<Thread> stages = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    // Aggregator state, only touched by the aggregator thread
+    private final Shape[] shapes = new Shape[SHAPES];
+    private long games, invalid;
+
+    public JournalAnalysis(Path path, int threads, Path out) {
+        this.path = path;
+        this.threads = Math.max(1, threads);
+        this.out = out;
+        int pool = 4 * this.threads + 2;
+        free = new ArrayBlockingQueue<>(pool);
+        work = new ArrayBlockingQueue<>(2 * this.threads);
+        // Room for every batch and every end marker, so an analyzer can always leave its marker
+        done = new ArrayBlockingQueue<>(pool + this.threads);
+        for (int i = 0; i < pool; i++) {
+            free.add(new Batch());
+        }
+        for (int n = 3; n * n <= SolutionTable.MAX_CELLS; n++) {
+            for (int k = 3; k <= n; k++) {
+                Path table = SolutionTable.defaultPath(n, k);
+                if (!Files.isRegularFile(table)) continue;
+                try {
+                    tables[shape(n, k)] = SolutionTable.open(table);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    public void run() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Thread reader = Thread.currentThread();
+        stages.add(reader);
+        for (int i = 0; i < threads; i++) {
+            stage("analyzer-" + i, this::analyze);
+        }
+        stage("aggregator", this::aggregate);
+        for (Thread t : stages) {
+            if (t != reader) t.start();
+        }
+
+        try {
+            read();
+            // One end marker per analyzer; each passes it on to the aggregator
+            for (int i = 0; i < threads; i++) {
+                work.put(Batch.END);
+            }
+        } catch (Exception | Error e) {
+            // An interrupt from fail() is already accounted for
+            fail(e);
+        }
+        for (Thread t : stages) {
+            while (t != reader && t.isAlive()) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    fail(e);
+                }
+            }
+        }
+        Throwable failed = failure.get();
+        if (failed != null) {
+            Thread.interrupted();
+            if (failed instanceof IOException) throw (IOException) failed;
+            if (failed instanceof InterruptedException) throw (InterruptedException) failed;
+            if (failed instanceof Error) throw (Error) failed;
+            throw (RuntimeException) failed;
+        }
+        report((System.nanoTime() - start) / 1e9);
+    }
+
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    private void stage(String name, Stage body) {
+        stages.add(new Thread(() -> {
+            try {
+                body.run();
+            } catch (Exception | Error e) {
+                fail(e);
+            }
+        }, name));
+    }
+
+    // The first failure stops every other stage, or they would wait for ever on queues that
+    // no longer move; an interrupt caused by an earlier failure changes nothing
+    private void fail(Throwable t) {
+        if (!failure.compareAndSet(null, t)) return;
+        for (Thread s : stages) {
+            if (s != Thread.currentThread()) s.interrupt();
+        }
+    }
+
+    private void read() throws IOException, InterruptedException {
+        Batch[] current = {free.take()};
+        long[] index = {0};
+        InterruptedException[] interrupted = new InterruptedException[1];
+        GameJournal.replay(path, record -> {
+            if (interrupted[0] != null) return;
+            Batch b = current[0];
+            record.copyTo(b.records, b.count * GameJournal.RECORD_SIZE);
+            b.count++;
+            index[0]++;
+            if (b.count == BATCH_RECORDS) {
+                try {
+                    work.put(b);
+                    current[0] = free.take();
+                    current[0].first = index[0];
+                } catch (InterruptedException e) {
+                    interrupted[0] = e;
+                }
+            }
+        });
+        if (interrupted[0] != null) throw interrupted[0];
+        if (current[0].count > 0) work.put(current[0]);
+    }
+
+    private void analyze() throws InterruptedException {
+        Judge judge = new Judge();
+        GameJournal.Record record = new GameJournal.Record();
+        try {
+            Batch b;
+            while ((b = work.take()) != Batch.END) {
+                ByteBuffer buf = ByteBuffer.wrap(b.records);
+                for (int i = 0; i < b.count; i++) {
+                    try {
+                        judge.analyze(record.at(buf, i * GameJournal.RECORD_SIZE), b, i);
+                    } catch (RuntimeException e) {
+                        // Malformed beyond what the checks catch, e.g. moves past the record
+                        b.forcedAt[i] = NONE;
+                    }
+                }
+                done.put(b);
+            }
+        } finally {
+            // Never blocks, as done has room for it
+            done.offer(Batch.END);
+        }
+    }
+
+    private void aggregate() throws IOException, InterruptedException {
+        GameJournal.Record record = new GameJournal.Record();
+        try (Writer csv = out == null ? null : Files.newBufferedWriter(out)) {
+            if (csv != null) {
+                csv.write("game,grid,win,result,moves,forced_at,mistakes,first_mistake,branching,on_time\n");
+            }
+            int ended = 0;
+            while (ended < threads) {
+                Batch b = done.take();
+                if (b == Batch.END) {
+                    ended++;
+                    continue;
+                }
+                ByteBuffer buf = ByteBuffer.wrap(b.records);
+                for (int i = 0; i < b.count; i++) {
+                    record.at(buf, i * GameJournal.RECORD_SIZE);
+                    tally(record, b, i);
+                    if (csv != null && b.forcedAt[i] != NONE) {
+                        csv.write(String.format("%d,%d,%d,%d,%d,%d,%d,%d,%.2f,%d%n", b.first + i,
+                                record.gridSize(), record.winLength(), record.result(), record.moveCount(),
+                                b.forcedAt[i], b.mistakes[i], b.firstMistake[i] == NONE ? -1 : b.firstMistake[i],
+                                branching(record), record.endedOnTime() ? 1 : 0));
+                    }
+                }
+                b.count = 0;
+                free.put(b);
+            }
+        }
+    }
+
+    private void tally(GameJournal.Record record, Batch b, int i) {
+        if (b.forcedAt[i] == NONE) {
+            invalid++;
+            return;
+        }
+        games++;
+        int key = shape(record.gridSize(), record.winLength());
+        Shape s = shapes[key];
+        if (s == null) {
+            s = new Shape(record.gridSize(), record.winLength());
+            shapes[key] = s;
+        }
+        s.games++;
+        if (record.endedOnTime()) s.onTime++;
+        s.moves += record.moveCount();
+        s.forcedAt += b.forcedAt[i];
+        s.mistakes += b.mistakes[i];
+        if (b.mistakes[i] > 0) s.withMistakes++;
+        s.branching += branching(record);
+        if (record.moveCount() > 0) {
+            int opening = b.opening[i];
+            s.openings[opening]++;
+            if (record.result() == GameJournal.RESULT_DRAW) s.openingDraws[opening]++;
+            else if (record.result() == record.firstSide()) s.openingWins[opening]++;
+        }
+    }
+
+    // Mean number of legal moves over the positions where a move was made
+    private static double branching(GameJournal.Record record) {
+        int n = record.moveCount();
+        if (n == 0) return 0;
+        int cells = record.gridSize() * record.gridSize();
+        return cells - (n - 1) / 2.0;
+    }
+
+    private void report(double seconds) {
+        System.out.printf("%d games in %.2fs (%.0f games/s) on %d analyzer threads, %d skipped as aborted or invalid%n",
+                games, seconds, games / seconds, threads, invalid);
+        for (Shape s : shapes) {
+            if (s == null) continue;
+            System.out.printf("%n%dx%d, %d in a row (%s): %d games (%d on time), %.1f moves, forced after %.1f, "
+                            + "%.2f mistakes per game, %.1f%% with a mistake, branching %.1f%n",
+                    s.gridSize, s.gridSize, s.winLength,
+                    tables[shape(s.gridSize, s.winLength)] != null ? "exact" : "2-ply horizon",
+                    s.games, s.onTime, (double) s.moves / s.games, (double) s.forcedAt / s.games,
+                    (double) s.mistakes / s.games, 100.0 * s.withMistakes / s.games, s.branching / s.games);
+            System.out.println("  opening     games   first mover wins   draws");
+            int shown = 0;
+            boolean[] listed = new boolean[s.openings.length];
+            while (shown < 5) {
+                int best = -1;
+                for (int c = 0; c < s.openings.length; c++) {
+                    if (!listed[c] && s.openings[c] > 0 && (best < 0 || s.openings[c] > s.openings[best])) best = c;
+                }
+                if (best < 0) break;
+                listed[best] = true;
+                shown++;
+                long n = s.openings[best];
+                System.out.printf("  (%d,%d) %12d %17.1f%% %6.1f%%%n", best / s.gridSize, best % s.gridSize, n,
+                        100.0 * s.openingWins[best] / n, 100.0 * s.openingDraws[best] / n);
+            }
+        }
+    }
+
+    private static int shape(int gridSize, int winLength) {
+        return gridSize * (Board.MAX_SIZE + 1) + winLength;
+    }
+
+    // A slice of raw records plus what the analyzers found in each
+    private static final class Batch {
+        static final Batch END = new Batch();
+
+        final byte[] records = new byte[BATCH_RECORDS * GameJournal.RECORD_SIZE];
+        // Per record; forcedAt is NONE for games that were aborted or don't replay
+        final int[] forcedAt = new int[BATCH_RECORDS];
+        final int[] mistakes = new int[BATCH_RECORDS];
+        final int[] firstMistake = new int[BATCH_RECORDS];
+        // Canonical first move, the smallest cell it maps to under the board symmetries
+        final int[] opening = new int[BATCH_RECORDS];
+        long first;
+        int count;
+    }
+
+    private static final class Shape {
+        final int gridSize, winLength;
+        final long[] openings, openingWins, openingDraws;
+        long games, onTime, moves, forcedAt, mistakes, withMistakes;
+        double branching;
+
+        Shape(int gridSize, int winLength) {
+            this.gridSize = gridSize;
+            this.winLength = winLength;
+            openings = new long[gridSize * gridSize];
+            openingWins = new long[gridSize * gridSize];
+            openingDraws = new long[gridSize * gridSize];
+        }
+    }
+
+    // Per analyzer thread: boards and symmetry tables by shape, reused across games
+    private final class Judge {
+        private final Board[] boards = new Board[SHAPES];
+        private final int[][][] perms = new int[Board.MAX_SIZE + 1][][];
+        // Judgement after each ply from X's view: 1 X wins, -1 O wins, 0 neither (yet)
+        private final int[] value = new int[Board.MAX_SIZE * Board.MAX_SIZE + 1];
+
+        void analyze(GameJournal.Record record, Batch b, int i) {
+            b.forcedAt[i] = NONE;
+            b.mistakes[i] = 0;
+            b.firstMistake[i] = NONE;
+            int n = record.gridSize(), k = record.winLength();
+            if (n < 3 || n > Board.MAX_SIZE || k < 3 || k > n || record.result() == GameJournal.RESULT_ABORTED) {
+                return;
+            }
+            int key = shape(n, k);
+            Board board = boards[key];
+            if (board == null) {
+                board = new Board(n, k);
+                boards[key] = board;
+            }
+            if (record.replay(board) != record.result()) return;
+
+            SolutionTable table = tables[key];
+            board.reset(record.firstSide());
+            int count = record.moveCount();
+            value[0] = toX(board, judge(board, table, false));
+            for (int ply = 0; ply < count; ply++) {
+                int mover = board.getSideToMove();
+                boolean won = board.play(record.move(ply));
+                value[ply + 1] = toX(board, judge(board, table, won));
+                int sign = mover == Board.X ? 1 : -1;
+                if (value[ply + 1] * sign < value[ply] * sign) {
+                    b.mistakes[i]++;
+                    if (b.firstMistake[i] == NONE) b.firstMistake[i] = ply + 1;
+                }
+            }
+            int forced = count;
+            while (forced > 0 && value[forced - 1] == value[count]) forced--;
+            b.forcedAt[i] = forced;
+
+            int[][] perm = perms[n];
+            if (perm == null) {
+                perm = SolutionTable.symmetries(n);
+                perms[n] = perm;
+            }
+            int opening = Integer.MAX_VALUE;
+            if (count > 0) {
+                for (int[] p : perm) opening = Math.min(opening, p[record.move(0)]);
+            }
+            b.opening[i] = opening;
+        }
+
+        // 1 if the side to move has won, -1 lost, 0 neither or unknown
+        private int judge(Board board, SolutionTable table, boolean lastMoveWon) {
+            if (lastMoveWon) return -1;
+            if (board.isFull()) return 0;
+            if (table != null) {
+                int v = table.value(board);
+                if (v != Integer.MIN_VALUE) return Integer.signum(v);
+            }
+            return horizon(board);
+        }
+
+        private int toX(Board board, int sideToMoveValue) {
+            return board.getSideToMove() == Board.X ? sideToMoveValue : -sideToMoveValue;
+        }
+
+        // Win in one for the side to move, or two different cells the opponent wins on next
+        private int horizon(Board board) {
+            Board.Lines lines = board.lines();
+            int me = board.getSideToMove(), them = me ^ 1;
+            int need = board.getWinLength() - 1;
+            long myLo = board.bitsLo(me), myHi = board.bitsHi(me);
+            long theirLo = board.bitsLo(them), theirHi = board.bitsHi(them);
+            long threatLo = 0, threatHi = 0;
+            for (int m = 0; m < lines.count; m++) {
+                long lo = lines.maskLo[m], hi = lines.maskHi[m];
+                int mine = Long.bitCount(myLo & lo) + Long.bitCount(myHi & hi);
+                int theirs = Long.bitCount(theirLo & lo) + Long.bitCount(theirHi & hi);
+                if (theirs == 0 && mine == need) return 1;
+                if (mine == 0 && theirs == need) {
+                    threatLo |= lo & ~theirLo;
+                    threatHi |= hi & ~theirHi;
+                }
+            }
+            return Long.bitCount(threatLo) + Long.bitCount(threatHi) >= 2 ? -1 : 0;
+        }
+    }
+}
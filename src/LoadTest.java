@@ -0,0 +1,259 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Plays random games against a server at increasing concurrency. Simulated players
+// are non-blocking channels spread over a few client selector threads, so thousands
+// of them cost a few threads rather than a thread each. Reports how fast the players
+// connected, games and moves per second, and move round-trip latency (our move sent ->
+// opponent's reply received) at p50/p99/p999.
+public class LoadTest {
+    private final String host;
+    private final int port;
+    private final int clientThreads;
+
+    public LoadTest(String host, int port, int clientThreads) {
+        this.host = host;
+        this.port = port;
+        this.clientThreads = Math.max(1, clientThreads);
+    }
+
+    public void run(int[] levels, int seconds) throws InterruptedException {
+        System.out.println("matches    conn/s   games/s   moves/s   p50(us)   p99(us)  p999(us)  errors");
+        for (int matches : levels) {
+            Level level = runLevel(matches, seconds * 1_000_000_000L);
+            long[] samples = level.samples();
+            System.out.printf("%7d %9.0f %9.0f %9.0f %9.1f %9.1f %9.1f %7d%n",
+                    matches,
+                    level.connected.get() / Math.max(1e-9, (level.lastConnected.get() - level.start) / 1e9),
+                    level.games.get() / (double) seconds,
+                    samples.length / (double) seconds,
+                    percentile(samples, 0.50) / 1000.0,
+                    percentile(samples, 0.99) / 1000.0,
+                    percentile(samples, 0.999) / 1000.0,
+                    level.errors.get());
+        }
+    }
+
+    private Level runLevel(int matches, long durationNanos) throws InterruptedException {
+        int players = matches * 2;
+        int threads = Math.min(clientThreads, players);
+        Level level = new Level(threads);
+        long deadline = level.start + durationNanos;
+        for (int t = 0; t < threads; t++) {
+            // Players are split evenly; consecutive ids connect from the same loop
+            int from = players * t / threads, to = players * (t + 1) / threads;
+            ClientLoop loop = new ClientLoop(level, t, from, to, deadline);
+            Thread thread = new Thread(loop, "load-client-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        level.done.await();
+        return level;
+    }
+
+    static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))];
+    }
+
+    static final class Level {
+        final long start = System.nanoTime();
+        final AtomicLong connected = new AtomicLong();
+        final AtomicLong lastConnected = new AtomicLong(start);
+        final AtomicLong games = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final long[][] latencies;
+        final int[] counts;
+        final CountDownLatch done;
+
+        Level(int loops) {
+            latencies = new long[loops][];
+            counts = new int[loops];
+            done = new CountDownLatch(loops);
+        }
+
+        long[] samples() {
+            int total = 0;
+            for (int c : counts) total += c;
+            long[] all = new long[total];
+            int n = 0;
+            for (int i = 0; i < latencies.length; i++) {
+                if (latencies[i] == null) continue;
+                System.arraycopy(latencies[i], 0, all, n, counts[i]);
+                n += counts[i];
+            }
+            Arrays.sort(all);
+            return all;
+        }
+    }
+
+    // One selector driving a slice of the players until the deadline
+    final class ClientLoop implements Runnable {
+        private final Level level;
+        private final int id;
+        private final int from, to;
+        private final long deadline;
+        private long[] samples = new long[1 << 16];
+        private int count;
+
+        ClientLoop(Level level, int id, int from, int to, long deadline) {
+            this.level = level;
+            this.id = id;
+            this.from = from;
+            this.to = to;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            try (Selector selector = Selector.open()) {
+                for (int i = from; i < to; i++) {
+                    SocketChannel ch = SocketChannel.open();
+                    ch.configureBlocking(false);
+                    ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    ch.connect(new InetSocketAddress(host, port));
+                    ch.register(selector, SelectionKey.OP_CONNECT, new Player(ch, i));
+                }
+                while (System.nanoTime() - deadline < 0) {
+                    selector.select(50);
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        Player p = (Player) key.attachment();
+                        try {
+                            if (key.isConnectable()) connected(p, key);
+                            else if (key.isReadable()) read(p, key);
+                            if (key.isValid() && key.isWritable()) flush(p, key);
+                        } catch (IOException e) {
+                            // Past the deadline another loop closing its players ends their matches here
+                            if (System.nanoTime() - deadline < 0) level.errors.incrementAndGet();
+                            key.cancel();
+                            p.channel.close();
+                        }
+                    }
+                    selector.selectedKeys().clear();
+                }
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                level.errors.incrementAndGet();
+            } finally {
+                level.latencies[id] = samples;
+                level.counts[id] = count;
+                level.done.countDown();
+            }
+        }
+
+        private void connected(Player p, SelectionKey key) throws IOException {
+            p.channel.finishConnect();
+            level.connected.incrementAndGet();
+            level.lastConnected.accumulateAndGet(System.nanoTime(), Math::max);
+            Protocol.writeHello(p.out, Protocol.ROLE_PLAYER, 0, 0);
+            key.interestOps(SelectionKey.OP_READ);
+            flush(p, key);
+        }
+
+        private void read(Player p, SelectionKey key) throws IOException {
+            if (p.channel.read(p.in) < 0) {
+                throw new IOException("Server closed connection");
+            }
+            ByteBuffer in = p.in;
+            in.flip();
+            while (true) {
+                if (p.board == null) {
+                    if (in.remaining() < Protocol.START_SIZE + Protocol.SESSION_SIZE) break;
+                    int start = Protocol.readStart(in);
+                    Protocol.readSession(in);
+                    p.board = new Board(Protocol.gridSize(start), Protocol.winLength(start));
+                    p.moves = new int[p.board.getCellCount()];
+                    p.me = Board.toSide(Protocol.side(start));
+                    p.board.reset(p.firstSide);
+                } else {
+                    if (!in.hasRemaining() || in.remaining() < Protocol.frameSize(in.get(in.position()) & 0xFF)) break;
+                    int move = Protocol.readMove(in);
+                    if (Protocol.isTimeout(move)) {
+                        // One side lost on time: acknowledge and start the next game. If our own last
+                        // move already ended that game here, we are in the next one: start it again.
+                        Protocol.writeTimeout(p.out, Protocol.timeoutSide(move), Protocol.timeoutGame(move));
+                        if (Protocol.timeoutGame(move) == (p.gameNo & 0xFF)) {
+                            gameOver(p, Protocol.timeoutSide(move));
+                        } else {
+                            p.firstSide = Protocol.rematchFirstSide(Protocol.timeoutSide(move));
+                            p.board.reset(p.firstSide);
+                            p.sentAt = 0;
+                        }
+                    } else {
+                        int cell = Protocol.moveCell(move);
+                        if (p.sentAt != 0) record(System.nanoTime() - p.sentAt);
+                        p.sentAt = 0;
+                        if (p.board.play(cell) || p.board.isFull()) gameOver(p, p.me ^ 1);
+                    }
+                }
+                while (p.board.getSideToMove() == p.me) {
+                    move(p);
+                }
+            }
+            in.compact();
+            flush(p, key);
+        }
+
+        private void move(Player p) {
+            int n = p.board.legalMoves(p.moves);
+            int cell = p.moves[p.random.nextInt(n)];
+            Protocol.writeMove(p.out, p.board.getMoveCount(), cell);
+            p.sentAt = System.nanoTime();
+            if (p.board.play(cell) || p.board.isFull()) gameOver(p, p.me);
+        }
+
+        // endedBy made the last move or lost on time, and picks the next first side as the server does
+        private void gameOver(Player p, int endedBy) {
+            if (p.me == Board.X) level.games.incrementAndGet();
+            p.gameNo++;
+            p.firstSide = Protocol.rematchFirstSide(endedBy);
+            p.board.reset(p.firstSide);
+            p.sentAt = 0;
+        }
+
+        private void flush(Player p, SelectionKey key) throws IOException {
+            ByteBuffer out = p.out;
+            out.flip();
+            p.channel.write(out);
+            key.interestOps(out.hasRemaining() ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            out.compact();
+        }
+
+        private void record(long nanos) {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = nanos;
+        }
+    }
+
+    static final class Player {
+        final SocketChannel channel;
+        final SplittableRandom random;
+        final ByteBuffer in = ByteBuffer.allocate(64);
+        final ByteBuffer out = ByteBuffer.allocate(64);
+        Board board;
+        int[] moves;
+        int me;
+        int firstSide = Board.X;
+        int gameNo = 1;
+        long sentAt;
+
+        Player(SocketChannel channel, int id) {
+            this.channel = channel;
+            this.random = new SplittableRandom(id);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+// Matchmaking without a global lock. Every (grid size, win length) pair has its own
+// exchange slot: a joiner either parks itself in the empty slot or takes whoever is
+// parked there, each with a single compare-and-set, so joins for different buckets
+// never touch the same memory and joins for the same bucket never block each other.
+public class Lobby<T> {
+    private final AtomicReferenceArray<T> slots = new AtomicReferenceArray<>((Board.MAX_SIZE + 1) * (Board.MAX_SIZE + 1));
+    private final LongAdder pairings = new LongAdder();
+
+    public static int bucket(int gridSize, int winLength) {
+        return gridSize * (Board.MAX_SIZE + 1) + winLength;
+    }
+
+    public static int gridSize(int bucket) {
+        return bucket / (Board.MAX_SIZE + 1);
+    }
+
+    public static int winLength(int bucket) {
+        return bucket % (Board.MAX_SIZE + 1);
+    }
+
+    // Returns the partner that was waiting in the bucket, or null if the joiner is now
+    // the one waiting. Parked entries that are no longer alive are thrown away.
+    public T join(int bucket, T joiner, Predicate<T> alive) {
+        while (true) {
+            T waiting = slots.get(bucket);
+            if (waiting == null) {
+                if (slots.compareAndSet(bucket, null, joiner)) return null;
+            } else if (slots.compareAndSet(bucket, waiting, null) && alive.test(waiting)) {
+                pairings.increment();
+                return waiting;
+            }
+        }
+    }
+
+    // Takes a parked entry back out; false if someone already paired with it
+    public boolean leave(int bucket, T waiting) {
+        return slots.compareAndSet(bucket, waiting, null);
+    }
+
+    public long getPairings() {
+        return pairings.sum();
+    }
+}
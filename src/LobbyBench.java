@@ -0,0 +1,92 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+// Bursts of simultaneous joins against the lobby. One selector connects every client
+// at once, sends its HELLO as soon as the connection is up and waits for START.
+// Reports pairings/second over the whole burst and the time from HELLO to START.
+public class LobbyBench {
+    private final String host;
+    private final int port;
+    private final int buckets;
+
+    public LobbyBench(String host, int port, int buckets) {
+        this.host = host;
+        this.port = port;
+        this.buckets = Math.max(1, buckets);
+    }
+
+    public void run(int[] bursts) throws IOException {
+        System.out.println("  joins  pairings/s   p50(ms)   p99(ms)   max(ms)  unmatched");
+        for (int joins : bursts) {
+            // Whole pairs per bucket so every client can be matched
+            joins -= joins % (2 * buckets);
+            runBurst(joins);
+        }
+    }
+
+    private void runBurst(int joins) throws IOException {
+        SocketChannel[] clients = new SocketChannel[joins];
+        long[] sent = new long[joins];
+        long[] waits = new long[joins];
+        ByteBuffer[] in = new ByteBuffer[joins];
+        int matched = 0;
+        long start = System.nanoTime(), last = start;
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < joins; i++) {
+                clients[i] = SocketChannel.open();
+                clients[i].configureBlocking(false);
+                clients[i].connect(new InetSocketAddress(host, port));
+                clients[i].register(selector, SelectionKey.OP_CONNECT, i);
+                in[i] = ByteBuffer.allocate(Protocol.START_SIZE);
+            }
+            long deadline = start + 30_000_000_000L;
+            while (matched < joins && System.nanoTime() - deadline < 0) {
+                selector.select(100);
+                for (SelectionKey key : selector.selectedKeys()) {
+                    int i = (Integer) key.attachment();
+                    try {
+                        if (key.isConnectable()) {
+                            clients[i].finishConnect();
+                            int grid = 3 + i % buckets % (Board.MAX_SIZE - 2);
+                            ByteBuffer hello = ByteBuffer.allocate(Protocol.HELLO_SIZE);
+                            Protocol.writeHello(hello, Protocol.ROLE_PLAYER, grid, 3);
+                            hello.flip();
+                            sent[i] = System.nanoTime();
+                            clients[i].write(hello);
+                            key.interestOps(SelectionKey.OP_READ);
+                        } else if (key.isReadable()) {
+                            if (clients[i].read(in[i]) < 0) {
+                                key.cancel();
+                            } else if (!in[i].hasRemaining()) {
+                                last = System.nanoTime();
+                                waits[matched++] = last - sent[i];
+                                key.cancel();
+                            }
+                        }
+                    } catch (IOException e) {
+                        key.cancel();
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } finally {
+            for (SocketChannel ch : clients) {
+                if (ch != null) ch.close();
+            }
+        }
+        long[] sorted = Arrays.copyOf(waits, matched);
+        Arrays.sort(sorted);
+        System.out.printf("%7d %11.0f %9.2f %9.2f %9.2f %10d%n",
+                joins,
+                matched / 2 / ((last - start) / 1e9),
+                LoadTest.percentile(sorted, 0.50) / 1e6,
+                LoadTest.percentile(sorted, 0.99) / 1e6,
+                matched == 0 ? 0 : sorted[matched - 1] / 1e6,
+                joins - matched);
+    }
+}
@@ -1,5 +1,318 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+// Every mode except the interactive GUI is headless and never loads AWT or Swing;
+// TicTacToeGUI is only touched by the last branch. For faster starts, dump a class data
+// sharing archive from one short hosted game (CDS needs the jar, not a classes directory)
+// and map it in afterwards:
+//   java -XX:ArchiveClassesAtExit=tictactoe.jsa -jar target/tictactoe-1.0-SNAPSHOT.jar --host --games 1
+//   java -jar target/tictactoe-1.0-SNAPSHOT.jar --join 127.0.0.1:9090 --games 1
+//   java -XX:SharedArchiveFile=tictactoe.jsa -jar target/tictactoe-1.0-SNAPSHOT.jar --host
 public class Main {
-    public static void main(String[] args) {
-        new TicTacToeGUI();
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parseArgs(args);
+        if (opts.containsKey("server")) {
+            TicTacToeServer server = new TicTacToeServer(
+                    intOpt(opts, "port", 9099),
+                    intOpt(opts, "threads", Runtime.getRuntime().availableProcessors()),
+                    intOpt(opts, "grid", 3),
+                    intOpt(opts, "win", 3));
+            server.setJournal(GameJournal.open(opts.getOrDefault("journal",
+                    System.getProperty("tictactoe.journal", "journal/server.bin"))));
+            if (opts.containsKey("clock")) server.setTimeControl(TimeControl.parse(opts.get("clock")));
+            server.setIdleTimeout(intOpt(opts, "idle", 120) * 1000L);
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+            System.out.printf("Server listening on port %d, %d ms after start%n",
+                    server.getLocalPort(), millisSinceStart());
+            Thread.currentThread().join();
+        }
+        else if (opts.containsKey("host")) {
+            TicTacToeGame game = botGame(opts);
+            game.setGridSize(intOpt(opts, "grid", 3));
+            game.setWinLength(intOpt(opts, "win", 3));
+            // Validates the settings before anyone can connect
+            new Board(game.getGridSize(), game.getWinLength());
+            if (game.startServer(intOpt(opts, "port", 9090))) {
+                System.out.printf("Hosting on port %d, %d ms after start%n", game.getLocalPort(), millisSinceStart());
+            }
+            Thread.currentThread().join();
+        }
+        else if (opts.containsKey("join")) {
+            String[] hostPort = opts.get("join").split(":");
+            botGame(opts).connectToServer(hostPort[0], Integer.parseInt(hostPort[1]));
+            Thread.currentThread().join();
+        }
+        else if (opts.containsKey("load-test")) {
+            runLoadTest(opts);
+        }
+        else if (opts.containsKey("lobby-bench")) {
+            runLobbyBench(opts);
+        }
+        else if (opts.containsKey("search-bench")) {
+            new SearchBenchmark(intOpt(opts, "grid", 6), intOpt(opts, "win", 4), intOpt(opts, "depth", 6))
+                    .run(intOpt(opts, "threads", Runtime.getRuntime().availableProcessors()));
+        }
+        else if (opts.containsKey("mcts-bench")) {
+            new MctsBenchmark(intOpt(opts, "grid", 7), intOpt(opts, "win", 4), intOpt(opts, "time", 200))
+                    .run(intOpt(opts, "games", 20), new RandomStrategy(42));
+        }
+        else if (opts.containsKey("self-play")) {
+            new SelfPlay(intOpt(opts, "grid", 3), intOpt(opts, "win", 3),
+                    opts.getOrDefault("a", "ab:10"), opts.getOrDefault("b", "random"))
+                    .run(Long.parseLong(opts.getOrDefault("games", "100000")),
+                            intOpt(opts, "threads", Runtime.getRuntime().availableProcessors()));
+        }
+        else if (opts.containsKey("tournament")) {
+            String shapes = opts.getOrDefault("shapes", intOpt(opts, "grid", 3) + ":" + intOpt(opts, "win", 3));
+            Tournament.Sprt sprt = !opts.containsKey("sprt") ? null : new Tournament.Sprt(
+                    Double.parseDouble(opts.getOrDefault("elo0", "0")),
+                    Double.parseDouble(opts.getOrDefault("elo1", "10")),
+                    Double.parseDouble(opts.getOrDefault("alpha", "0.05")),
+                    Double.parseDouble(opts.getOrDefault("beta", "0.05")));
+            new Tournament(opts.getOrDefault("engines", "ab:10,mcts:10,random").split(","),
+                    Tournament.parseShapes(shapes), opts.containsKey("gauntlet"),
+                    Long.parseLong(opts.getOrDefault("games", "1000")), sprt)
+                    .run(intOpt(opts, "threads", Runtime.getRuntime().availableProcessors()));
+        }
+        else if (opts.containsKey("gomoku-bench")) {
+            String[] sizeArgs = opts.getOrDefault("sizes", "9,15,19").split(",");
+            int[] sizes = new int[sizeArgs.length];
+            for (int i = 0; i < sizes.length; i++) {
+                sizes[i] = Integer.parseInt(sizeArgs[i].trim());
+            }
+            new GomokuBenchmark(intOpt(opts, "win", 5), intOpt(opts, "time", 100))
+                    .run(sizes, intOpt(opts, "games", 2));
+        }
+        else if (opts.containsKey("gomoku")) {
+            // --human x or o plays that side at the console; none leaves both to the engine
+            String human = opts.getOrDefault("human", "x").toUpperCase();
+            int humanSide = human.equals("NONE") ? GomokuBoard.EMPTY : human.length() == 1 ? Board.toSide(human.charAt(0)) : -1;
+            if (humanSide < 0 && !human.equals("NONE")) {
+                throw new IllegalArgumentException("--human must be x, o or none");
+            }
+            new GomokuGame(intOpt(opts, "size", 15), intOpt(opts, "win", 5), intOpt(opts, "time", 1000), humanSide).run();
+        }
+        else if (opts.containsKey("gen-table")) {
+            int gridSize = intOpt(opts, "grid", 3);
+            int winLength = intOpt(opts, "win", 3);
+            Path out = opts.containsKey("out")
+                    ? Path.of(opts.get("out"))
+                    : SolutionTable.defaultPath(gridSize, winLength);
+            long start = System.nanoTime();
+            int count = SolutionTable.generate(gridSize, winLength, out);
+            System.out.printf("Wrote %d positions to %s in %.1fs%n", count, out, (System.nanoTime() - start) / 1e9);
+        }
+        else if (opts.containsKey("replay")) {
+            replay(Path.of(opts.get("replay")));
+        }
+        else if (opts.containsKey("analyze")) {
+            new JournalAnalysis(Path.of(opts.get("analyze")),
+                    intOpt(opts, "threads", Runtime.getRuntime().availableProcessors()),
+                    opts.containsKey("out") ? Path.of(opts.get("out")) : null).run();
+        }
+        else if (opts.containsKey("watch")) {
+            String[] hostPort = opts.get("watch").split(":");
+            watch(hostPort[0], Integer.parseInt(hostPort[1]));
+        }
+        else {
+            new TicTacToeGUI();
+        }
     }
-}
\ No newline at end of file
+
+    // Network game played by an engine (--engine, a SelfPlay spec) for --games games
+    private static TicTacToeGame botGame(Map<String, String> opts) {
+        ConsoleListener listener = new ConsoleListener(intOpt(opts, "games", 1));
+        TicTacToeGame game = new TicTacToeGame(listener);
+        listener.setGame(game);
+        if (opts.containsKey("clock")) game.setTimeControl(TimeControl.parse(opts.get("clock")));
+        game.setIdleTimeout(intOpt(opts, "idle", 120) * 1000L);
+        String spec = opts.getOrDefault("engine", "ab:100");
+        // Fails on a bad spec now; the engine itself waits for the shape in START when joining
+        SelfPlay.strategy(spec, 3, 3, 0);
+        long seed = System.nanoTime();
+        game.setLocalBot((grid, win) -> SelfPlay.strategy(spec, grid, win, seed));
+        return game;
+    }
+
+    // Wall time since the JVM was launched, which is what a user waiting on it sees
+    private static long millisSinceStart() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    // Without --connect the load test starts its own server on a free port
+    private static void runLoadTest(Map<String, String> opts) throws Exception {
+        String[] levelArgs = opts.getOrDefault("matches", "10,100,1000").split(",");
+        int[] levels = new int[levelArgs.length];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = Integer.parseInt(levelArgs[i].trim());
+        }
+        int seconds = intOpt(opts, "seconds", 5);
+
+        TicTacToeServer server = null;
+        String host = "127.0.0.1";
+        int port;
+        if (opts.containsKey("connect")) {
+            String[] hostPort = opts.get("connect").split(":");
+            host = hostPort[0];
+            port = Integer.parseInt(hostPort[1]);
+        }
+        else {
+            server = new TicTacToeServer(0,
+                    intOpt(opts, "threads", Runtime.getRuntime().availableProcessors()),
+                    intOpt(opts, "grid", 3),
+                    intOpt(opts, "win", 3));
+            server.setJournal(GameJournal.open(opts.getOrDefault("journal", "off")));
+            if (opts.containsKey("clock")) server.setTimeControl(TimeControl.parse(opts.get("clock")));
+            server.start();
+            port = server.getLocalPort();
+        }
+        new LoadTest(host, port, intOpt(opts, "client-threads", 2)).run(levels, seconds);
+        if (server != null) server.stop();
+    }
+
+    // Same server handling as the load test: in-process unless --connect is given
+    private static void runLobbyBench(Map<String, String> opts) throws Exception {
+        String[] burstArgs = opts.getOrDefault("joins", "1000,4000,8000").split(",");
+        int[] bursts = new int[burstArgs.length];
+        for (int i = 0; i < bursts.length; i++) {
+            bursts[i] = Integer.parseInt(burstArgs[i].trim());
+        }
+
+        TicTacToeServer server = null;
+        String host = "127.0.0.1";
+        int port;
+        if (opts.containsKey("connect")) {
+            String[] hostPort = opts.get("connect").split(":");
+            host = hostPort[0];
+            port = Integer.parseInt(hostPort[1]);
+        }
+        else {
+            server = new TicTacToeServer(0, intOpt(opts, "threads", Runtime.getRuntime().availableProcessors()), 3, 3);
+            server.setJournal(GameJournal.open(opts.getOrDefault("journal", "off")));
+            server.start();
+            port = server.getLocalPort();
+        }
+        new LobbyBench(host, port, intOpt(opts, "buckets", 4)).run(bursts);
+        if (server != null) {
+            System.out.printf("Server made %d pairings%n", server.getPairings());
+            server.stop();
+        }
+    }
+
+    // Streams a journal back through the rules engine and checks every stored result
+    private static void replay(Path path) throws IOException {
+        Board[][] boards = new Board[Board.MAX_SIZE + 1][Board.MAX_SIZE + 1];
+        long[] mismatches = new long[1];
+        long[] invalid = new long[1];
+        long[] onTime = new long[1];
+        long start = System.nanoTime();
+        long games = GameJournal.replay(path, record -> {
+            int n = record.gridSize(), k = record.winLength();
+            if (n < 3 || n > Board.MAX_SIZE || k < 3 || k > n
+                    || (record.firstSide() != Board.X && record.firstSide() != Board.O)) {
+                invalid[0]++;
+                return;
+            }
+            Board board = boards[n][k];
+            if (board == null) {
+                board = new Board(n, k);
+                boards[n][k] = board;
+            }
+            if (record.endedOnTime()) onTime[0]++;
+            int result = record.replay(board);
+            if (result != record.result() && record.result() != GameJournal.RESULT_ABORTED) {
+                mismatches[0]++;
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Replayed %d games in %.2fs (%.0f games/s), %d ended on time, %d mismatched results, "
+                        + "%d skipped as invalid%n",
+                games - invalid[0], seconds, games / seconds, onTime[0], mismatches[0], invalid[0]);
+    }
+
+    // Joins a hosted game as a spectator and prints the board after every move
+    private static void watch(String host, int port) throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            BufferedInputStream buffered = new BufferedInputStream(socket.getInputStream());
+            DataInputStream in = new DataInputStream(buffered);
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            Protocol.writeHello(out, Protocol.ROLE_SPECTATOR, 0, 0);
+            out.flush();
+
+            byte[] moves = new byte[Board.MAX_SIZE * Board.MAX_SIZE];
+            Board board = null;
+            while (true) {
+                buffered.mark(1);
+                int type = buffered.read();
+                if (type < 0) return;
+                buffered.reset();
+                if (type == Protocol.SNAPSHOT) {
+                    int snapshot = Protocol.readSnapshot(in, moves);
+                    board = new Board(Protocol.gridSize(snapshot), Protocol.winLength(snapshot));
+                    board.reset(Protocol.firstSide(snapshot));
+                    for (int i = 0; i < Protocol.snapshotCount(snapshot); i++) {
+                        board.play(moves[i] & 0xFF);
+                    }
+                }
+                else if (board != null) {
+                    int move = Protocol.readMove(in);
+                    int error = Protocol.validateMove(board, board.getSideToMove(), move);
+                    if (error != Protocol.OK) {
+                        throw new IOException("Illegal move from host: " + Protocol.errorName(error));
+                    }
+                    board.play(Protocol.moveCell(move));
+                }
+                else {
+                    throw new IOException("Move before snapshot");
+                }
+                printBoard(board);
+            }
+        }
+    }
+
+    private static void printBoard(Board board) {
+        StringBuilder sb = new StringBuilder();
+        int n = board.getGridSize();
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                char mark = Board.toMark(board.get(board.cell(r, c)));
+                sb.append(mark == ' ' ? '.' : mark).append(c == n - 1 ? '\n' : ' ');
+            }
+        }
+        int winner = board.winner();
+        sb.append(winner >= 0 ? Board.toMark(winner) + " wins" : board.isFull() ? "Draw"
+                : "Move " + board.getMoveCount() + ", " + Board.toMark(board.getSideToMove()) + " to play");
+        System.out.println(sb.append('\n'));
+    }
+
+    // Accepts "--key value" and bare "--flag" arguments
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            String key = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                opts.put(key, args[++i]);
+            }
+            else {
+                opts.put(key, "");
+            }
+        }
+        return opts;
+    }
+
+    static int intOpt(Map<String, String> opts, String key, int def) {
+        String value = opts.get(key);
+        return (value == null || value.isEmpty()) ? def : Integer.parseInt(value);
+    }
+}
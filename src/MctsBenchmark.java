@@ -0,0 +1,49 @@
+// Plays MctsStrategy against a fixed baseline, alternating who moves first,
+// and reports its score and playouts/second.
+public class MctsBenchmark {
+    private final int gridSize;
+    private final int winLength;
+    private final long budgetMillis;
+
+    public MctsBenchmark(int gridSize, int winLength, long budgetMillis) {
+        this.gridSize = gridSize;
+        this.winLength = winLength;
+        this.budgetMillis = budgetMillis;
+    }
+
+    public void run(int games, Strategy baseline) {
+        MctsStrategy mcts = new MctsStrategy(budgetMillis);
+        Board board = new Board(gridSize, winLength);
+        int wins = 0, draws = 0, losses = 0;
+        long playouts = 0, searchNanos = 0;
+        for (int g = 0; g < games; g++) {
+            int mctsSide = g % 2;
+            board.reset(Board.X);
+            while (true) {
+                int side = board.getSideToMove();
+                int cell;
+                if (side == mctsSide) {
+                    long start = System.nanoTime();
+                    cell = mcts.selectMove(board);
+                    searchNanos += System.nanoTime() - start;
+                    playouts += mcts.getPlayouts();
+                } else {
+                    cell = baseline.selectMove(board);
+                }
+                if (board.play(cell)) {
+                    if (side == mctsSide) wins++;
+                    else losses++;
+                    break;
+                }
+                if (board.isFull()) {
+                    draws++;
+                    break;
+                }
+            }
+        }
+        System.out.printf("%dx%d, %d in a row, %s vs %s%n", gridSize, gridSize, winLength, mcts, baseline);
+        System.out.printf("games %d  win %d  draw %d  loss %d  score %.1f%%%n",
+                games, wins, draws, losses, 100.0 * (wins + 0.5 * draws) / games);
+        System.out.printf("playouts/s %.0f%n", playouts / (searchNanos / 1e9));
+    }
+}
@@ -0,0 +1,215 @@
+import java.util.SplittableRandom;
+
+// Anytime Monte Carlo Tree Search (UCT) for the larger boards where alpha-beta can't see far.
+// Nodes live in parallel primitive arrays (an arena) and children of a node are allocated
+// together, so the tree produces no garbage. The subtree under the last two moves is kept
+// and reused on the next turn; the arena is reset once it fills up.
+public class MctsStrategy implements Strategy {
+    private static final double EXPLORATION = 1.4;
+    private static final int NONE = -1;
+
+    private final long budgetNanos;
+    private final int capacity;
+    private final SplittableRandom random;
+
+    // Node arena. value is from the point of view of the side that played move[node].
+    private final int[] move;
+    private final int[] visits;
+    private final double[] value;
+    private final int[] firstChild;
+    private final byte[] childCount;
+    private final boolean[] expanded;
+    private int used;
+    private int root = NONE;
+
+    private Board board;
+    private Board rootBoard;
+    private final int[] path = new int[Board.MAX_SIZE * Board.MAX_SIZE + 2];
+    private final int[] empty = new int[Board.MAX_SIZE * Board.MAX_SIZE];
+    private long playouts;
+
+    public MctsStrategy(long budgetMillis) {
+        this(budgetMillis, 1 << 20, System.nanoTime());
+    }
+
+    public MctsStrategy(long budgetMillis, int capacity, long seed) {
+        this.budgetNanos = budgetMillis * 1_000_000L;
+        this.capacity = capacity;
+        this.random = new SplittableRandom(seed);
+        move = new int[capacity];
+        visits = new int[capacity];
+        value = new double[capacity];
+        firstChild = new int[capacity];
+        childCount = new byte[capacity];
+        expanded = new boolean[capacity];
+    }
+
+    @Override
+    public int selectMove(Board position) {
+        long deadline = System.nanoTime() + budgetNanos;
+        reuseOrReset(position);
+        playouts = 0;
+
+        do {
+            for (int i = 0; i < 64; i++) {
+                iterate(position);
+            }
+        } while (System.nanoTime() - deadline < 0);
+
+        // Most visited child is the most robust choice
+        int best = NONE;
+        for (int c = firstChild[root], end = c + childCount[root]; c < end; c++) {
+            if (best == NONE || visits[c] > visits[best]) best = c;
+        }
+        int cell = move[best];
+        root = best;
+        rootBoard.copyFrom(position);
+        rootBoard.play(cell);
+        return cell;
+    }
+
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    public int getTreeSize() {
+        return used;
+    }
+
+    private void iterate(Board position) {
+        board.copyFrom(position);
+        int depth = 0;
+        int node = root;
+        path[depth++] = node;
+        boolean over = false;
+
+        // Selection
+        while (expanded[node] && childCount[node] > 0) {
+            node = selectChild(node);
+            path[depth++] = node;
+            if (board.play(move[node]) || board.isFull()) {
+                over = true;
+                break;
+            }
+        }
+
+        // Expansion
+        if (!over && !expanded[node] && used + board.getCellCount() <= capacity) {
+            expand(node);
+            if (childCount[node] > 0) {
+                node = firstChild[node] + random.nextInt(childCount[node]);
+                path[depth++] = node;
+                over = board.play(move[node]) || board.isFull();
+            }
+        }
+
+        // Simulation: result is the winning side, or -1 for a draw
+        int lastMover = board.getSideToMove() ^ 1;
+        int winner;
+        if (over) {
+            winner = board.isWinningCell(move[node], lastMover) ? lastMover : -1;
+        } else {
+            winner = playout();
+        }
+        playouts++;
+
+        // Backpropagation, walking up the path the mover alternates
+        int mover = lastMover;
+        for (int i = depth - 1; i >= 0; i--) {
+            int n = path[i];
+            visits[n]++;
+            value[n] += winner == -1 ? 0.5 : winner == mover ? 1.0 : 0.0;
+            mover ^= 1;
+        }
+    }
+
+    private int selectChild(int node) {
+        double logN = Math.log(visits[node]);
+        int best = firstChild[node];
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int c = firstChild[node], end = c + childCount[node]; c < end; c++) {
+            if (visits[c] == 0) return c;
+            double score = value[c] / visits[c] + EXPLORATION * Math.sqrt(logN / visits[c]);
+            if (score > bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private void expand(int node) {
+        int n = board.legalMoves(empty);
+        firstChild[node] = used;
+        childCount[node] = (byte) n;
+        for (int i = 0; i < n; i++) {
+            init(used++, empty[i]);
+        }
+        expanded[node] = true;
+    }
+
+    // Random moves to the end of the game, picking from a shrinking list of empty cells
+    private int playout() {
+        int n = board.legalMoves(empty);
+        while (n > 0) {
+            int i = random.nextInt(n);
+            int cell = empty[i];
+            empty[i] = empty[--n];
+            int side = board.getSideToMove();
+            if (board.play(cell)) return side;
+        }
+        return -1;
+    }
+
+    private void init(int node, int cell) {
+        move[node] = cell;
+        visits[node] = 0;
+        value[node] = 0;
+        firstChild[node] = NONE;
+        childCount[node] = 0;
+        expanded[node] = false;
+    }
+
+    // Walks from the previous root down the opponent's reply if the position follows on
+    // from our last move; anything else (new game, other board) starts a fresh tree
+    private void reuseOrReset(Board position) {
+        if (board == null || board.getGridSize() != position.getGridSize()
+                || board.getWinLength() != position.getWinLength()) {
+            board = new Board(position);
+            rootBoard = new Board(position);
+            root = NONE;
+        }
+        if (root != NONE && used < capacity / 2 && position.getMoveCount() == rootBoard.getMoveCount() + 1) {
+            int reply = findReply(position);
+            if (reply != NONE && expanded[root]) {
+                for (int c = firstChild[root], end = c + childCount[root]; c < end; c++) {
+                    if (move[c] == reply) {
+                        root = c;
+                        return;
+                    }
+                }
+            }
+        }
+        used = 0;
+        root = used++;
+        init(root, NONE);
+    }
+
+    private int findReply(Board position) {
+        for (int side = Board.X; side <= Board.O; side++) {
+            long lo = position.bitsLo(side), hi = position.bitsHi(side);
+            long rootLo = rootBoard.bitsLo(side), rootHi = rootBoard.bitsHi(side);
+            if ((lo & rootLo) != rootLo || (hi & rootHi) != rootHi) return NONE;
+        }
+        int mover = rootBoard.getSideToMove();
+        long newLo = position.bitsLo(mover) & ~rootBoard.bitsLo(mover);
+        long newHi = position.bitsHi(mover) & ~rootBoard.bitsHi(mover);
+        if (Long.bitCount(newLo) + Long.bitCount(newHi) != 1) return NONE;
+        return newLo != 0 ? Long.numberOfTrailingZeros(newLo) : 64 + Long.numberOfTrailingZeros(newHi);
+    }
+
+    @Override
+    public String toString() {
+        return "mcts(" + budgetNanos / 1_000_000 + "ms)";
+    }
+}
@@ -0,0 +1,124 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ObjectName;
+
+// Process-wide counters and latency histograms, published as the MXBean
+// tictactoe:type=Metrics. Off unless -Dtictactoe.metrics=true; every call site checks
+// the static final ENABLED first, so when it is off the JIT drops the timing code
+// entirely. -Dtictactoe.metrics.log=N also prints a summary line every N seconds.
+public final class Metrics {
+    public static final boolean ENABLED = Boolean.getBoolean("tictactoe.metrics");
+
+    public static final LongAdder gamesStarted = new LongAdder();
+    public static final LongAdder gamesFinished = new LongAdder();
+    public static final LongAdder movesSent = new LongAdder();
+    public static final LongAdder movesReceived = new LongAdder();
+    // Incoming moves that failed validation
+    public static final LongAdder movesRejected = new LongAdder();
+    public static final LongAdder activeConnections = new LongAdder();
+
+    // Move read -> relayed to the opponent on the server; read -> applied to the board on a client
+    public static final Histogram moveLatency = new Histogram();
+    // Encoding or decoding a frame, including the socket write/read it triggers
+    public static final Histogram serialization = new Histogram();
+    public static final Histogram winCheck = new Histogram();
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer()
+                        .registerMBean(new View(), new ObjectName("tictactoe:type=Metrics"));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            int seconds = Integer.getInteger("tictactoe.metrics.log", 0);
+            if (seconds > 0) {
+                Thread t = new Thread(() -> {
+                    while (true) {
+                        try {
+                            Thread.sleep(seconds * 1000L);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        System.out.println(summary());
+                    }
+                }, "metrics-log");
+                t.setDaemon(true);
+                t.start();
+            }
+        }
+    }
+
+    private Metrics() {
+    }
+
+    public static String summary() {
+        return String.format("games %d/%d, moves in %d out %d rejected %d, connections %d, move p50 %dus p99 %dus, "
+                        + "serialization p99 %dus, win check p99 %dns",
+                gamesStarted.sum(), gamesFinished.sum(), movesReceived.sum(), movesSent.sum(), movesRejected.sum(),
+                activeConnections.sum(), moveLatency.percentile(0.50) / 1000, moveLatency.percentile(0.99) / 1000,
+                serialization.percentile(0.99) / 1000, winCheck.percentile(0.99));
+    }
+
+    // Power-of-two nanosecond buckets: bucket b counts samples in [2^(b-1), 2^b).
+    // Percentiles report a bucket's upper bound, so they are accurate to a factor of 2.
+    public static final class Histogram {
+        private final LongAdder[] buckets = new LongAdder[64];
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+        }
+
+        public void record(long nanos) {
+            buckets[64 - Long.numberOfLeadingZeros(Math.max(0, nanos)) & 63].increment();
+        }
+
+        public long count() {
+            long n = 0;
+            for (LongAdder b : buckets) n += b.sum();
+            return n;
+        }
+
+        public long percentile(double p) {
+            long[] counts = new long[buckets.length];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(p * total), seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return i == 0 ? 0 : 1L << i;
+            }
+            return Long.MAX_VALUE;
+        }
+    }
+
+    public interface MetricsMXBean {
+        long getGamesStarted();
+        long getGamesFinished();
+        long getMovesSent();
+        long getMovesReceived();
+        long getMovesRejected();
+        long getActiveConnections();
+        long getMoveLatencyP50Micros();
+        long getMoveLatencyP99Micros();
+        long getSerializationP99Micros();
+        long getWinCheckP99Nanos();
+    }
+
+    private static final class View implements MetricsMXBean {
+        public long getGamesStarted() { return gamesStarted.sum(); }
+        public long getGamesFinished() { return gamesFinished.sum(); }
+        public long getMovesSent() { return movesSent.sum(); }
+        public long getMovesReceived() { return movesReceived.sum(); }
+        public long getMovesRejected() { return movesRejected.sum(); }
+        public long getActiveConnections() { return activeConnections.sum(); }
+        public long getMoveLatencyP50Micros() { return moveLatency.percentile(0.50) / 1000; }
+        public long getMoveLatencyP99Micros() { return moveLatency.percentile(0.99) / 1000; }
+        public long getSerializationP99Micros() { return serialization.percentile(0.99) / 1000; }
+        public long getWinCheckP99Nanos() { return winCheck.percentile(0.99); }
+    }
+}
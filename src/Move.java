@@ -1,6 +1,4 @@
-import java.io.Serializable;
-
-class Move implements Serializable {
+class Move {
     public int row, col;
     public Move(int row, int col) {
         this.row = row;
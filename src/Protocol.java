@@ -0,0 +1,430 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+// Wire format shared by host and player. Every frame starts with a one byte type.
+//   HELLO  (player -> host): type, magic (2), version, role, preferred grid size, preferred win length
+//   START  (host -> player): type, version, grid size, win length, side the receiver plays
+//   MOVE   (both ways)     : type, sequence number (moves already played this game), cell (row * gridSize + col)
+//   ERROR  (both ways)     : type, error code, sequence number of the rejected move; the sender closes next
+//   TIMEOUT (both ways)    : type, side whose clock ran out, game number (mod 256). Ends that game as
+//            a loss for the side and starts the next one afresh; the receiver sends it back once,
+//            and moves it made before that echo are dropped
+//   SESSION (host -> player, right after START): type, session token (8), 0 if resume is not offered
+//   RESUME  (player -> host, first frame of a reconnect): type, magic (2), version, token (8),
+//            game number (mod 256), moves of that game the player has seen
+//   RESUMED (host -> player): type, game number, first side, from, move count, moves [from, count)
+//   SNAPSHOT (host -> spectator): type, grid size, win length, first side, move count, moves
+//            sent on attach and whenever a new game starts
+// SNAPSHOT and RESUMED are the only variable-size frames.
+// Decoders return primitives (packed where needed) so nothing is allocated per frame, and
+// validateMove() checks a decoded move against the receiver's own board the same way.
+public final class Protocol {
+    public static final int MAGIC = 0x5454; // "TT"
+    public static final int VERSION = 3;
+
+    public static final int HELLO = 1;
+    public static final int START = 2;
+    public static final int MOVE = 3;
+    public static final int SNAPSHOT = 4;
+    public static final int SESSION = 5;
+    public static final int RESUME = 6;
+    public static final int RESUMED = 7;
+    public static final int ERROR = 8;
+    public static final int TIMEOUT = 9;
+
+    // Error codes, also validateMove() results
+    public static final int OK = 0;
+    public static final int ERR_RANGE = 1;
+    public static final int ERR_OCCUPIED = 2;
+    public static final int ERR_TURN = 3;
+    public static final int ERR_SEQUENCE = 4;
+
+    public static final int ROLE_PLAYER = 0;
+    public static final int ROLE_SPECTATOR = 1;
+
+    public static final int HELLO_SIZE = 7;
+    public static final int START_SIZE = 5;
+    public static final int MOVE_SIZE = 3;
+    public static final int SNAPSHOT_HEADER_SIZE = 5;
+    public static final int SESSION_SIZE = 9;
+    public static final int RESUME_SIZE = 14;
+    public static final int RESUMED_HEADER_SIZE = 5;
+    public static final int ERROR_SIZE = 3;
+    public static final int TIMEOUT_SIZE = 3;
+
+    // Set in readMove()'s result when the frame was a TIMEOUT rather than a move
+    private static final int TIMED_OUT = 1 << 16;
+
+    private Protocol() {
+    }
+
+    public static void writeHello(DataOutput out, int role, int gridSize, int winLength) throws IOException {
+        out.writeByte(HELLO);
+        out.writeShort(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(role);
+        out.writeByte(gridSize);
+        out.writeByte(winLength);
+    }
+
+    // Returns gridSize << 16 | winLength << 8 | role
+    public static int readHello(DataInput in) throws IOException {
+        expectType(in.readUnsignedByte(), HELLO);
+        if (in.readUnsignedShort() != MAGIC) {
+            throw new ProtocolException("Not a tic tac toe peer");
+        }
+        expectVersion(in.readUnsignedByte());
+        int role = in.readUnsignedByte();
+        int gridSize = in.readUnsignedByte();
+        int winLength = in.readUnsignedByte();
+        return gridSize << 16 | winLength << 8 | role;
+    }
+
+    public static void writeStart(DataOutput out, int gridSize, int winLength, char side) throws IOException {
+        out.writeByte(START);
+        out.writeByte(VERSION);
+        out.writeByte(gridSize);
+        out.writeByte(winLength);
+        out.writeByte(side);
+    }
+
+    // Returns gridSize << 16 | winLength << 8 | side
+    public static int readStart(DataInput in) throws IOException {
+        expectType(in.readUnsignedByte(), START);
+        expectVersion(in.readUnsignedByte());
+        int gridSize = in.readUnsignedByte();
+        int winLength = in.readUnsignedByte();
+        int side = in.readUnsignedByte();
+        if (gridSize < 3 || gridSize > Board.MAX_SIZE || winLength < 3 || winLength > gridSize
+                || (side != 'X' && side != 'O')) {
+            throw new ProtocolException("Invalid game settings from host");
+        }
+        return gridSize << 16 | winLength << 8 | side;
+    }
+
+    public static void writeMove(DataOutput out, int seq, int cell) throws IOException {
+        out.writeByte(MOVE);
+        out.writeByte(seq);
+        out.writeByte(cell);
+    }
+
+    // Returns seq << 8 | cell, or a timeout (see isTimeout()). An ERROR from the peer in place
+    // of the move is thrown.
+    public static int readMove(DataInput in) throws IOException {
+        int type = in.readUnsignedByte();
+        if (type == ERROR) {
+            int code = in.readUnsignedByte();
+            throw rejected(code, in.readUnsignedByte());
+        }
+        if (type == TIMEOUT) {
+            int side = in.readUnsignedByte();
+            return TIMED_OUT | in.readUnsignedByte() << 8 | side;
+        }
+        expectType(type, MOVE);
+        int seq = in.readUnsignedByte();
+        return seq << 8 | in.readUnsignedByte();
+    }
+
+    public static void writeError(DataOutput out, int code, int seq) throws IOException {
+        out.writeByte(ERROR);
+        out.writeByte(code);
+        out.writeByte(seq);
+    }
+
+    public static void writeTimeout(DataOutput out, int side, int game) throws IOException {
+        out.writeByte(TIMEOUT);
+        out.writeByte(side);
+        out.writeByte(game);
+    }
+
+    public static boolean isTimeout(int move) {
+        return (move & TIMED_OUT) != 0;
+    }
+
+    public static int timeoutSide(int move) {
+        return move & 1;
+    }
+
+    public static int timeoutGame(int move) {
+        return (move >>> 8) & 0xFF;
+    }
+
+    public static int move(int seq, int cell) {
+        return seq << 8 | cell;
+    }
+
+    public static int moveSeq(int move) {
+        return move >>> 8;
+    }
+
+    public static int moveCell(int move) {
+        return move & 0xFF;
+    }
+
+    // Checks a decoded move by the given side against the receiver's board, which is the
+    // authority. Returns OK or the error code to send back.
+    public static int validateMove(Board board, int side, int move) {
+        if (side != board.getSideToMove()) return ERR_TURN;
+        if (moveSeq(move) != board.getMoveCount()) return ERR_SEQUENCE;
+        int cell = moveCell(move);
+        if (cell >= board.getCellCount()) return ERR_RANGE;
+        if (!board.isEmpty(cell)) return ERR_OCCUPIED;
+        return OK;
+    }
+
+    // Nothing is sent when a rematch starts, so every peer and the server pick its first
+    // side the same way: the side that did not end the last game, where a game ends with
+    // its final move or with the side that ran out of time.
+    public static int rematchFirstSide(int endedBy) {
+        return endedBy ^ 1;
+    }
+
+    public static String errorName(int code) {
+        switch (code) {
+            case ERR_RANGE:
+                return "cell out of range";
+            case ERR_OCCUPIED:
+                return "cell already taken";
+            case ERR_TURN:
+                return "not that side's turn";
+            case ERR_SEQUENCE:
+                return "move out of sequence";
+            default:
+                return "error " + code;
+        }
+    }
+
+    public static void writeSession(DataOutput out, long token) throws IOException {
+        out.writeByte(SESSION);
+        out.writeLong(token);
+    }
+
+    public static long readSession(DataInput in) throws IOException {
+        expectType(in.readUnsignedByte(), SESSION);
+        return in.readLong();
+    }
+
+    public static void writeResume(DataOutput out, long token, int game, int seen) throws IOException {
+        out.writeByte(RESUME);
+        out.writeShort(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(token);
+        out.writeByte(game);
+        out.writeByte(seen);
+    }
+
+    // Checks the token against the session's and returns game << 8 | seen
+    public static int readResume(DataInput in, long token) throws IOException {
+        expectType(in.readUnsignedByte(), RESUME);
+        if (in.readUnsignedShort() != MAGIC) {
+            throw new ProtocolException("Not a tic tac toe peer");
+        }
+        expectVersion(in.readUnsignedByte());
+        if (in.readLong() != token || token == 0) {
+            throw new ProtocolException("Unknown session");
+        }
+        int game = in.readUnsignedByte();
+        int seen = in.readUnsignedByte();
+        return game << 8 | seen;
+    }
+
+    public static void writeResumed(DataOutput out, int game, int firstSide, byte[] moves, int from, int count)
+            throws IOException {
+        out.writeByte(RESUMED);
+        out.writeByte(game);
+        out.writeByte(firstSide);
+        out.writeByte(from);
+        out.writeByte(count);
+        out.write(moves, from, count - from);
+    }
+
+    // Fills moves[from, count) and returns game << 24 | from << 16 | count << 8 | firstSide
+    public static int readResumed(DataInput in, byte[] moves) throws IOException {
+        expectType(in.readUnsignedByte(), RESUMED);
+        int game = in.readUnsignedByte();
+        int firstSide = in.readUnsignedByte();
+        int from = in.readUnsignedByte();
+        int count = in.readUnsignedByte();
+        if (firstSide > 1 || from > count || count > moves.length) {
+            throw new ProtocolException("Invalid resume");
+        }
+        in.readFully(moves, from, count - from);
+        return game << 24 | from << 16 | count << 8 | firstSide;
+    }
+
+    public static int resumeFrom(int resumed) {
+        return (resumed >>> 16) & 0xFF;
+    }
+
+    public static int resumeCount(int resumed) {
+        return (resumed >>> 8) & 0xFF;
+    }
+
+    public static int resumeGame(int resumed) {
+        return resumed >>> 24;
+    }
+
+    public static int resumeFirstSide(int resumed) {
+        return resumed & 0xFF;
+    }
+
+    public static void writeSnapshot(ByteBuffer buf, int gridSize, int winLength, int firstSide,
+                                     byte[] moves, int count) {
+        buf.put((byte) SNAPSHOT).put((byte) gridSize).put((byte) winLength).put((byte) firstSide).put((byte) count);
+        buf.put(moves, 0, count);
+    }
+
+    // Fills moves and returns count << 24 | gridSize << 16 | winLength << 8 | firstSide
+    public static int readSnapshot(DataInput in, byte[] moves) throws IOException {
+        expectType(in.readUnsignedByte(), SNAPSHOT);
+        int gridSize = in.readUnsignedByte();
+        int winLength = in.readUnsignedByte();
+        int firstSide = in.readUnsignedByte();
+        int count = in.readUnsignedByte();
+        if (gridSize < 3 || gridSize > Board.MAX_SIZE || winLength < 3 || winLength > gridSize
+                || firstSide > 1 || count > gridSize * gridSize) {
+            throw new ProtocolException("Invalid snapshot");
+        }
+        in.readFully(moves, 0, count);
+        return count << 24 | gridSize << 16 | winLength << 8 | firstSide;
+    }
+
+    public static int snapshotCount(int snapshot) {
+        return snapshot >>> 24;
+    }
+
+    public static int firstSide(int snapshot) {
+        return snapshot & 0xFF;
+    }
+
+    // Size of a complete frame of the given type, or -1 if the type is unknown
+    public static int frameSize(int type) {
+        switch (type) {
+            case HELLO:
+                return HELLO_SIZE;
+            case START:
+                return START_SIZE;
+            case MOVE:
+                return MOVE_SIZE;
+            case SESSION:
+                return SESSION_SIZE;
+            case RESUME:
+                return RESUME_SIZE;
+            case ERROR:
+                return ERROR_SIZE;
+            case TIMEOUT:
+                return TIMEOUT_SIZE;
+            default:
+                return -1;
+        }
+    }
+
+    // ByteBuffer variants for the non-blocking server. Callers check frameSize() first.
+
+    public static void writeHello(ByteBuffer buf, int role, int gridSize, int winLength) {
+        buf.put((byte) HELLO).putShort((short) MAGIC).put((byte) VERSION)
+                .put((byte) role).put((byte) gridSize).put((byte) winLength);
+    }
+
+    public static int readHello(ByteBuffer buf) throws ProtocolException {
+        expectType(buf.get() & 0xFF, HELLO);
+        if ((buf.getShort() & 0xFFFF) != MAGIC) {
+            throw new ProtocolException("Not a tic tac toe peer");
+        }
+        expectVersion(buf.get() & 0xFF);
+        int role = buf.get() & 0xFF;
+        int gridSize = buf.get() & 0xFF;
+        int winLength = buf.get() & 0xFF;
+        return gridSize << 16 | winLength << 8 | role;
+    }
+
+    public static void writeStart(ByteBuffer buf, int gridSize, int winLength, char side) {
+        buf.put((byte) START).put((byte) VERSION).put((byte) gridSize).put((byte) winLength).put((byte) side);
+    }
+
+    // Returns gridSize << 16 | winLength << 8 | side
+    public static int readStart(ByteBuffer buf) throws ProtocolException {
+        expectType(buf.get() & 0xFF, START);
+        expectVersion(buf.get() & 0xFF);
+        int gridSize = buf.get() & 0xFF;
+        int winLength = buf.get() & 0xFF;
+        int side = buf.get() & 0xFF;
+        if (gridSize < 3 || gridSize > Board.MAX_SIZE || winLength < 3 || winLength > gridSize
+                || (side != 'X' && side != 'O')) {
+            throw new ProtocolException("Invalid game settings from host");
+        }
+        return gridSize << 16 | winLength << 8 | side;
+    }
+
+    public static void writeSession(ByteBuffer buf, long token) {
+        buf.put((byte) SESSION).putLong(token);
+    }
+
+    public static long readSession(ByteBuffer buf) throws ProtocolException {
+        expectType(buf.get() & 0xFF, SESSION);
+        return buf.getLong();
+    }
+
+    // Returns seq << 8 | cell, or a timeout. An ERROR from the peer in place of the move is thrown.
+    public static int readMove(ByteBuffer buf) throws ProtocolException {
+        int type = buf.get() & 0xFF;
+        if (type == ERROR) {
+            int code = buf.get() & 0xFF;
+            throw rejected(code, buf.get() & 0xFF);
+        }
+        if (type == TIMEOUT) {
+            int side = buf.get() & 0xFF;
+            return TIMED_OUT | (buf.get() & 0xFF) << 8 | side;
+        }
+        expectType(type, MOVE);
+        int seq = buf.get() & 0xFF;
+        return seq << 8 | (buf.get() & 0xFF);
+    }
+
+    public static void writeMove(ByteBuffer buf, int seq, int cell) {
+        buf.put((byte) MOVE).put((byte) seq).put((byte) cell);
+    }
+
+    public static void writeTimeout(ByteBuffer buf, int side, int game) {
+        buf.put((byte) TIMEOUT).put((byte) side).put((byte) game);
+    }
+
+    public static void writeError(ByteBuffer buf, int code, int seq) {
+        buf.put((byte) ERROR).put((byte) code).put((byte) seq);
+    }
+
+    public static int role(int hello) {
+        return hello & 0xFF;
+    }
+
+    public static int gridSize(int packed) {
+        return (packed >>> 16) & 0xFF;
+    }
+
+    public static int winLength(int packed) {
+        return (packed >>> 8) & 0xFF;
+    }
+
+    public static char side(int start) {
+        return (char) (start & 0xFF);
+    }
+
+    private static ProtocolException rejected(int code, int seq) {
+        return new ProtocolException("Peer rejected move " + seq + ": " + errorName(code));
+    }
+
+    private static void expectType(int type, int expected) throws ProtocolException {
+        if (type != expected) {
+            throw new ProtocolException("Unexpected frame type " + type);
+        }
+    }
+
+    private static void expectVersion(int version) throws ProtocolException {
+        if (version != VERSION) {
+            throw new ProtocolException("Unsupported protocol version " + version);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+import java.util.SplittableRandom;
+
+// Uniformly random legal moves; the baseline other strategies are measured against
+public class RandomStrategy implements Strategy {
+    private final SplittableRandom random;
+    private final int[] moves = new int[Board.MAX_SIZE * Board.MAX_SIZE];
+
+    public RandomStrategy(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public int selectMove(Board board) {
+        int n = board.legalMoves(moves);
+        return moves[random.nextInt(n)];
+    }
+
+    @Override
+    public String toString() {
+        return "random";
+    }
+}
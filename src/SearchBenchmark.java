@@ -0,0 +1,45 @@
+// Time-to-depth and nodes/second of AlphaBetaStrategy from one thread up to maxThreads,
+// searching the empty board to a fixed depth with no time limit.
+public class SearchBenchmark {
+    private final int gridSize;
+    private final int winLength;
+    private final int depth;
+
+    public SearchBenchmark(int gridSize, int winLength, int depth) {
+        this.gridSize = gridSize;
+        this.winLength = winLength;
+        this.depth = depth;
+    }
+
+    public void run(int maxThreads) {
+        System.out.printf("%dx%d, %d in a row, depth %d%n", gridSize, gridSize, winLength, depth);
+        System.out.println("threads   time(ms)       nodes    nodes/s  speedup");
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+            Board board = new Board(gridSize, winLength);
+            board.reset(Board.X);
+            // First search warms up the JIT, the second one is timed on a fresh table
+            AlphaBetaStrategy warmup = new AlphaBetaStrategy(Long.MAX_VALUE / 2_000_000L, depth, 64, threads);
+            try {
+                warmup.selectMove(board);
+            } finally {
+                warmup.shutdown();
+            }
+            AlphaBetaStrategy engine = new AlphaBetaStrategy(Long.MAX_VALUE / 2_000_000L, depth, 64, threads);
+            try {
+                long start = System.nanoTime();
+                engine.selectMove(board);
+                double millis = (System.nanoTime() - start) / 1e6;
+                if (threads == 1) baseline = millis;
+                System.out.printf("%7d %10.1f %11d %10.0f %8.2f%n",
+                        threads, millis, engine.getNodes(), engine.getNodes() / (millis / 1000), baseline / millis);
+            } finally {
+                engine.shutdown();
+            }
+        }
+    }
+
+    private static int nextThreadCount(int threads, int maxThreads) {
+        return (threads * 2 > maxThreads && threads < maxThreads) ? maxThreads : threads * 2;
+    }
+}
@@ -0,0 +1,150 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+// Engine-vs-engine games on every core with no Swing and no sockets, straight on the
+// Board rules the game, server and journal replay all use. Each worker owns its
+// strategies and board; the sides swap who moves first every game, as a rematch does.
+// Strategies are given as specs: random, ab[:ms[:depth]], mcts[:ms], table[:ms]; a
+// "cached:" prefix puts a shared EvalCache (-Dtictactoe.cache.mb, default 16) in front.
+public class SelfPlay {
+    private static final int CHUNK = 64;
+    static final int CACHE_MB = Integer.getInteger("tictactoe.cache.mb", 16);
+
+    private final int gridSize;
+    private final int winLength;
+    private final String specA;
+    private final String specB;
+    // One per cached side, shared by all workers
+    private final EvalCache cacheA;
+    private final EvalCache cacheB;
+
+    private final AtomicLong nextGame = new AtomicLong();
+    private final AtomicLong winsA = new AtomicLong();
+    private final AtomicLong winsB = new AtomicLong();
+    private final AtomicLong draws = new AtomicLong();
+    private final AtomicLong firstMoverWins = new AtomicLong();
+    private final AtomicLong movesA = new AtomicLong();
+    private final AtomicLong movesB = new AtomicLong();
+    private final AtomicLong nanosA = new AtomicLong();
+    private final AtomicLong nanosB = new AtomicLong();
+    private final Metrics.Histogram timeA = new Metrics.Histogram();
+    private final Metrics.Histogram timeB = new Metrics.Histogram();
+
+    public SelfPlay(int gridSize, int winLength, String specA, String specB) {
+        // Validates the settings and both specs up front
+        new Board(gridSize, winLength);
+        cacheA = specA.startsWith("cached:") ? new EvalCache(CACHE_MB) : null;
+        cacheB = specB.startsWith("cached:") ? new EvalCache(CACHE_MB) : null;
+        strategy(specA, gridSize, winLength, 0, cacheA);
+        strategy(specB, gridSize, winLength, 0, cacheB);
+        this.gridSize = gridSize;
+        this.winLength = winLength;
+        this.specA = specA;
+        this.specB = specB;
+    }
+
+    public static Strategy strategy(String spec, int gridSize, int winLength, long seed) {
+        return strategy(spec, gridSize, winLength, seed, null);
+    }
+
+    // A cached spec uses the given cache, or a fresh one if it is null
+    static Strategy strategy(String spec, int gridSize, int winLength, long seed, EvalCache cache) {
+        if (spec.startsWith("cached:")) {
+            return new CachedStrategy(cache != null ? cache : new EvalCache(CACHE_MB),
+                    strategy(spec.substring("cached:".length()), gridSize, winLength, seed));
+        }
+        String[] parts = spec.split(":");
+        long millis = parts.length > 1 ? Long.parseLong(parts[1]) : 100;
+        switch (parts[0]) {
+            case "random":
+                return new RandomStrategy(seed);
+            case "ab":
+                int depth = parts.length > 2 ? Integer.parseInt(parts[2]) : AlphaBetaStrategy.MAX_PLY;
+                return new AlphaBetaStrategy(millis, depth, 4, 1);
+            case "mcts":
+                return new MctsStrategy(millis, 1 << 18, seed);
+            case "table":
+                return TableStrategy.withTable(gridSize, winLength, new AlphaBetaStrategy(millis, AlphaBetaStrategy.MAX_PLY, 4, 1));
+            default:
+                throw new IllegalArgumentException("Unknown strategy: " + spec);
+        }
+    }
+
+    public void run(long games, int threads) throws InterruptedException {
+        System.out.printf("%dx%d, %d in a row: A=%s vs B=%s, %d games on %d threads%n",
+                gridSize, gridSize, winLength, specA, specB, games, threads);
+        long start = System.nanoTime();
+        Thread[] workers = new Thread[Math.max(1, threads)];
+        for (int i = 0; i < workers.length; i++) {
+            long seed = 0x9E3779B97F4A7C15L * (i + 1);
+            workers[i] = new Thread(() -> play(games, seed), "self-play-" + i);
+            workers[i].start();
+        }
+        for (Thread t : workers) t.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long played = winsA.get() + winsB.get() + draws.get();
+        System.out.printf("A wins %d (%.1f%%), B wins %d (%.1f%%), draws %d (%.1f%%), first mover won %.1f%%%n",
+                winsA.get(), 100.0 * winsA.get() / played, winsB.get(), 100.0 * winsB.get() / played,
+                draws.get(), 100.0 * draws.get() / played, 100.0 * firstMoverWins.get() / played);
+        System.out.printf("%.0f games/s, %.0f moves/s%n",
+                played / seconds, (movesA.get() + movesB.get()) / seconds);
+        System.out.printf("A: %.1f us/move mean, p99 < %.1f us%n",
+                nanosA.get() / 1000.0 / Math.max(1, movesA.get()), timeA.percentile(0.99) / 1000.0);
+        System.out.printf("B: %.1f us/move mean, p99 < %.1f us%n",
+                nanosB.get() / 1000.0 / Math.max(1, movesB.get()), timeB.percentile(0.99) / 1000.0);
+        if (cacheA != null) System.out.println("A " + cacheA);
+        if (cacheB != null) System.out.println("B " + cacheB);
+    }
+
+    private void play(long games, long seed) {
+        Strategy a = strategy(specA, gridSize, winLength, seed, cacheA);
+        Strategy b = strategy(specB, gridSize, winLength, seed + 1, cacheB);
+        Board board = new Board(gridSize, winLength);
+        // Tallied locally and published once per chunk
+        long wa = 0, wb = 0, d = 0, first = 0, ma = 0, mb = 0, na = 0, nb = 0;
+        long game;
+        while ((game = nextGame.getAndAdd(CHUNK)) < games) {
+            for (long g = game, end = Math.min(games, game + CHUNK); g < end; g++) {
+                // A plays X and moves first in even games, O and second in odd ones
+                int sideA = (int) (g & 1);
+                board.reset(Board.X);
+                int winner = -1;
+                while (!board.isFull()) {
+                    int side = board.getSideToMove();
+                    boolean isA = side == sideA;
+                    long t0 = System.nanoTime();
+                    int cell = (isA ? a : b).selectMove(board);
+                    long nanos = System.nanoTime() - t0;
+                    if (isA) {
+                        ma++;
+                        na += nanos;
+                        timeA.record(nanos);
+                    } else {
+                        mb++;
+                        nb += nanos;
+                        timeB.record(nanos);
+                    }
+                    if (board.play(cell)) {
+                        winner = side;
+                        break;
+                    }
+                }
+                if (winner < 0) d++;
+                else if (winner == sideA) wa++;
+                else wb++;
+                if (winner == Board.X) first++;
+            }
+            winsA.addAndGet(wa);
+            winsB.addAndGet(wb);
+            draws.addAndGet(d);
+            firstMoverWins.addAndGet(first);
+            movesA.addAndGet(ma);
+            movesB.addAndGet(mb);
+            nanosA.addAndGet(na);
+            nanosB.addAndGet(nb);
+            wa = wb = d = first = ma = mb = na = nb = 0;
+        }
+        if (a instanceof AlphaBetaStrategy) ((AlphaBetaStrategy) a).shutdown();
+        if (b instanceof AlphaBetaStrategy) ((AlphaBetaStrategy) b).shutdown();
+    }
+}
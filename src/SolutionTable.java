@@ -0,0 +1,299 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Perfect-play table for boards of at most 16 cells (3x3, 4x4). Every non-terminal
+// reachable position is reduced to its smallest form under the 8 board symmetries
+// and stored as one sorted long: key << 16 | value << 8 | best move.
+//   key   = side to move << 32 | O cells << 16 | X cells
+//   value = signed byte from the side to move's view: 100 - plies to a win,
+//           -(100 - plies) for a loss, 0 for a draw
+//   move  = best cell in the canonical orientation
+// The file is a 16 byte header followed by the entries, read through a memory map.
+public class SolutionTable {
+    public static final int MAGIC = 0x54545354; // "TTST"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int MAX_CELLS = 16;
+
+    private final int gridSize;
+    private final int winLength;
+    private final int count;
+    private final MappedByteBuffer entries;
+    private final int[][] perm;
+    private final int[][] inverse;
+
+    private SolutionTable(int gridSize, int winLength, int count, MappedByteBuffer entries) {
+        this.gridSize = gridSize;
+        this.winLength = winLength;
+        this.count = count;
+        this.entries = entries;
+        this.perm = symmetries(gridSize);
+        this.inverse = invert(perm);
+    }
+
+    public static Path defaultPath(int gridSize, int winLength) {
+        return Path.of("tables", String.format("solution-%dx%d-k%d.bin", gridSize, gridSize, winLength));
+    }
+
+    public static SolutionTable open(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            map.order(ByteOrder.BIG_ENDIAN);
+            if (map.getInt(0) != MAGIC || map.get(4) != VERSION) {
+                throw new IOException("Not a solution table: " + path);
+            }
+            int gridSize = map.get(5);
+            int winLength = map.get(6);
+            int count = map.getInt(8);
+            if ((long) HEADER_SIZE + 8L * count > ch.size()) {
+                throw new IOException("Truncated solution table: " + path);
+            }
+            return new SolutionTable(gridSize, winLength, count, map);
+        }
+    }
+
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean covers(Board board) {
+        return board.getGridSize() == gridSize && board.getWinLength() == winLength;
+    }
+
+    // Best move for the side to move, or -1 if the position is not in the table
+    public int bestMove(Board board) {
+        int sym = canonicalSymmetry(board, perm);
+        int i = find(key(board, perm[sym]));
+        if (i < 0) return -1;
+        return inverse[sym][(int) entries.getLong(HEADER_SIZE + 8 * i) & 0xFF];
+    }
+
+    // Value from the side to move's point of view, or Integer.MIN_VALUE if unknown
+    public int value(Board board) {
+        int i = find(key(board, perm[canonicalSymmetry(board, perm)]));
+        if (i < 0) return Integer.MIN_VALUE;
+        return (byte) (entries.getLong(HEADER_SIZE + 8 * i) >>> 8);
+    }
+
+    private int find(long key) {
+        int lo = 0, hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long k = entries.getLong(HEADER_SIZE + 8 * mid) >>> 16;
+            if (k < key) lo = mid + 1;
+            else if (k > key) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    // Solves every position reachable from the empty board with either side starting
+    public static int generate(int gridSize, int winLength, Path out) throws IOException {
+        Generator g = new Generator(gridSize, winLength);
+        Board board = new Board(gridSize, winLength);
+        board.reset(Board.X);
+        g.solve(board);
+        board.reset(Board.O);
+        g.solve(board);
+
+        long[] entries = g.memo.entries();
+        Arrays.sort(entries);
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        try (OutputStream os = Files.newOutputStream(out);
+             DataOutputStream data = new DataOutputStream(new BufferedOutputStream(os, 1 << 16))) {
+            data.writeInt(MAGIC);
+            data.writeByte(VERSION);
+            data.writeByte(gridSize);
+            data.writeByte(winLength);
+            data.writeByte(0);
+            data.writeInt(entries.length);
+            data.writeInt(0);
+            for (long e : entries) {
+                data.writeLong(e);
+            }
+        }
+        return entries.length;
+    }
+
+    private static final class Generator {
+        final int[][] perm;
+        final LongIntMap memo = new LongIntMap(1 << 16);
+        final int[][] moves = new int[MAX_CELLS + 1][MAX_CELLS];
+
+        Generator(int gridSize, int winLength) {
+            if (gridSize * gridSize > MAX_CELLS) {
+                throw new IllegalArgumentException("Solution tables only cover boards up to 4x4");
+            }
+            perm = symmetries(gridSize);
+        }
+
+        // Returns the value of a non-terminal position for the side to move
+        int solve(Board board) {
+            int sym = canonicalSymmetry(board, perm);
+            long key = key(board, perm[sym]);
+            int cached = memo.get(key);
+            if (cached != LongIntMap.MISSING) {
+                return (byte) (cached >>> 8);
+            }
+
+            int[] m = moves[board.getMoveCount()];
+            int n = board.legalMoves(m);
+            int best = -128, bestMove = m[0];
+            for (int i = 0; i < n; i++) {
+                int cell = m[i];
+                int value;
+                if (board.play(cell)) {
+                    value = 99;
+                } else if (board.isFull()) {
+                    value = 0;
+                } else {
+                    int child = solve(board);
+                    value = child > 0 ? -(child - 1) : child < 0 ? -child - 1 : 0;
+                }
+                board.undo(cell);
+                if (value > best) {
+                    best = value;
+                    bestMove = cell;
+                }
+            }
+            memo.put(key, (best & 0xFF) << 8 | perm[sym][bestMove]);
+            return best;
+        }
+    }
+
+    static long key(Board board, int[] perm) {
+        long x = permute(board.bitsLo(Board.X), perm);
+        long o = permute(board.bitsLo(Board.O), perm);
+        return (long) board.getSideToMove() << 32 | o << 16 | x;
+    }
+
+    private static long permute(long bits, int[] perm) {
+        long out = 0;
+        for (; bits != 0; bits &= bits - 1) {
+            out |= 1L << perm[Long.numberOfTrailingZeros(bits)];
+        }
+        return out;
+    }
+
+    // Index of the symmetry that gives the smallest key
+    static int canonicalSymmetry(Board board, int[][] perm) {
+        int best = 0;
+        long bestKey = Long.MAX_VALUE;
+        for (int s = 0; s < perm.length; s++) {
+            long k = key(board, perm[s]);
+            if (k < bestKey) {
+                bestKey = k;
+                best = s;
+            }
+        }
+        return best;
+    }
+
+    // perm[s][cell] = where cell lands under rotation/reflection s
+    static int[][] symmetries(int n) {
+        int[][] perm = new int[8][n * n];
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                int cell = r * n + c;
+                int[][] images = {
+                        {r, c}, {c, n - 1 - r}, {n - 1 - r, n - 1 - c}, {n - 1 - c, r},
+                        {r, n - 1 - c}, {n - 1 - r, c}, {c, r}, {n - 1 - c, n - 1 - r}
+                };
+                for (int s = 0; s < 8; s++) {
+                    perm[s][cell] = images[s][0] * n + images[s][1];
+                }
+            }
+        }
+        return perm;
+    }
+
+    static int[][] invert(int[][] perm) {
+        int[][] inv = new int[perm.length][perm[0].length];
+        for (int s = 0; s < perm.length; s++) {
+            for (int c = 0; c < perm[s].length; c++) {
+                inv[s][perm[s][c]] = c;
+            }
+        }
+        return inv;
+    }
+
+    // Open addressing long -> int map for the generator's memo, keys must not be -1
+    private static final class LongIntMap {
+        static final int MISSING = Integer.MIN_VALUE;
+
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        LongIntMap(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, -1L);
+        }
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+                if (keys[i] == -1L) return MISSING;
+            }
+        }
+
+        void put(long key, int value) {
+            if (size * 2 >= keys.length) grow();
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (keys[i] != -1L && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == -1L) size++;
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        long[] entries() {
+            long[] out = new long[size];
+            int n = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != -1L) out[n++] = keys[i] << 16 | (values[i] & 0xFFFF);
+            }
+            return out;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            Arrays.fill(keys, -1L);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != -1L) put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Streams a hosted match to any number of spectators from one selector thread.
+// The game thread only queues an event: each move is encoded once into a read-only
+// buffer, and every spectator gets a duplicate of it, written with gathering
+// non-blocking writes. A spectator whose backlog grows past MAX_BACKLOG frames has
+// the backlog replaced by a single fresh snapshot, so slow watchers never hold up
+// the players.
+public class SpectatorHub implements Runnable {
+    static final int MAX_BACKLOG = 32;
+
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<Object> events = new ConcurrentLinkedQueue<>();
+    private final List<Watcher> watchers = new ArrayList<>();
+    private final byte[] moves = new byte[Board.MAX_SIZE * Board.MAX_SIZE];
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_BACKLOG + 1];
+    private int gridSize = 3, winLength = 3, firstSide = Board.X, count;
+    private volatile boolean running = true;
+
+    public SpectatorHub() throws IOException {
+        selector = Selector.open();
+        Thread t = new Thread(this, "spectator-hub");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public int getSpectatorCount() {
+        return watchers.size();
+    }
+
+    // Called from the accept thread once the spectator's HELLO has been read
+    public void attach(SocketChannel channel) {
+        publish(channel);
+    }
+
+    public void newGame(int gridSize, int winLength, int firstSide) {
+        publish(new int[] {gridSize, winLength, firstSide});
+    }
+
+    public void move(int seq, int cell) {
+        ByteBuffer frame = ByteBuffer.allocate(Protocol.MOVE_SIZE);
+        Protocol.writeMove(frame, seq, cell);
+        frame.flip();
+        publish(frame.asReadOnlyBuffer());
+    }
+
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void publish(Object event) {
+        events.add(event);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                drainEvents();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (key.isValid() && key.isWritable()) {
+                        flush((Watcher) key.attachment());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            for (Watcher w : new ArrayList<>(watchers)) {
+                drop(w);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void drainEvents() {
+        Object event;
+        while ((event = events.poll()) != null) {
+            if (event instanceof ByteBuffer) {
+                ByteBuffer frame = (ByteBuffer) event;
+                if (count < moves.length) moves[count++] = frame.get(2);
+                for (Watcher w : watchers) {
+                    enqueue(w, frame.duplicate());
+                }
+            } else if (event instanceof int[]) {
+                int[] game = (int[]) event;
+                gridSize = game[0];
+                winLength = game[1];
+                firstSide = game[2];
+                count = 0;
+                ByteBuffer snapshot = snapshot();
+                for (Watcher w : watchers) {
+                    discardUnsent(w);
+                    enqueue(w, snapshot.duplicate());
+                }
+            } else {
+                Watcher w = new Watcher((SocketChannel) event);
+                try {
+                    w.channel.configureBlocking(false);
+                    w.key = w.channel.register(selector, 0, w);
+                    watchers.add(w);
+                    enqueue(w, snapshot());
+                } catch (IOException e) {
+                    drop(w);
+                }
+            }
+        }
+        for (int i = watchers.size() - 1; i >= 0; i--) {
+            Watcher w = watchers.get(i);
+            if (!w.backlog.isEmpty()) flush(w);
+        }
+    }
+
+    private void enqueue(Watcher w, ByteBuffer frame) {
+        if (w.backlog.size() >= MAX_BACKLOG) {
+            // Coalesce: everything queued is replaced by the current position
+            discardUnsent(w);
+            frame = snapshot();
+        }
+        w.backlog.add(frame);
+    }
+
+    // Drops queued frames that have not started; a frame already partly written by a
+    // gathering write has to be finished, or the watcher's stream would be torn
+    private static void discardUnsent(Watcher w) {
+        ByteBuffer head = w.backlog.peek();
+        w.backlog.clear();
+        if (head != null && head.position() > 0) w.backlog.add(head);
+    }
+
+    private ByteBuffer snapshot() {
+        ByteBuffer buf = ByteBuffer.allocate(Protocol.SNAPSHOT_HEADER_SIZE + count);
+        Protocol.writeSnapshot(buf, gridSize, winLength, firstSide, moves, count);
+        buf.flip();
+        return buf.asReadOnlyBuffer();
+    }
+
+    private void flush(Watcher w) {
+        try {
+            int n = 0;
+            for (ByteBuffer b : w.backlog) gather[n++] = b;
+            w.channel.write(gather, 0, n);
+            while (!w.backlog.isEmpty() && !w.backlog.peek().hasRemaining()) {
+                w.backlog.poll();
+            }
+            w.key.interestOps(w.backlog.isEmpty() ? 0 : SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            drop(w);
+        }
+    }
+
+    private void drop(Watcher w) {
+        watchers.remove(w);
+        try {
+            if (w.key != null) w.key.cancel();
+            w.channel.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
+    private static final class Watcher {
+        final SocketChannel channel;
+        final ArrayDeque<ByteBuffer> backlog = new ArrayDeque<>();
+        SelectionKey key;
+
+        Watcher(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
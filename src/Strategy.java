@@ -0,0 +1,5 @@
+// Chooses a move for the side to move. Implementations may search on the board
+// but must hand it back exactly as they received it.
+public interface Strategy {
+    int selectMove(Board board);
+}
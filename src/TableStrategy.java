@@ -0,0 +1,45 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Perfect play straight from a memory-mapped SolutionTable; positions the table
+// doesn't cover go to the fallback strategy
+public class TableStrategy implements Strategy {
+    private final SolutionTable table;
+    private final Strategy fallback;
+
+    public TableStrategy(SolutionTable table, Strategy fallback) {
+        this.table = table;
+        this.fallback = fallback;
+    }
+
+    // Uses the table in the default location if one was generated for this board
+    public static Strategy withTable(int gridSize, int winLength, Strategy fallback) {
+        Path path = SolutionTable.defaultPath(gridSize, winLength);
+        if (!Files.isRegularFile(path)) {
+            return fallback;
+        }
+        try {
+            return new TableStrategy(SolutionTable.open(path), fallback);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return fallback;
+        }
+    }
+
+    @Override
+    public int selectMove(Board board) {
+        if (table.covers(board)) {
+            int cell = table.bestMove(board);
+            if (cell >= 0 && board.isEmpty(cell)) {
+                return cell;
+            }
+        }
+        return fallback.selectMove(board);
+    }
+
+    @Override
+    public String toString() {
+        return "table(" + fallback + ")";
+    }
+}
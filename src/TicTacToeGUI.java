@@ -2,23 +2,34 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class TicTacToeGUI extends JFrame implements ActionListener {
-    private JButton[][] gridBtn;
+public class TicTacToeGUI extends JFrame implements ActionListener, GameListener {
+    private BoardComponent board;
     private JLabel lblInfo;
     private JLabel lblGridSize;
     private JRadioButton rdoHost;
     private JRadioButton rdoPlayer;
+    private JRadioButton rdoComputer;
+    private JLabel lblThinkTime;
+    private JTextField txtThinkTime;
+    private JComboBox<String> cmbEngine;
     private JTextField txtPort;
     private JTextField txtIP;
     private JTextField txtGridSize;
+    private JLabel lblWinLength;
+    private JTextField txtWinLength;
+    private JLabel lblClock;
+    private JTextField txtClock;
     private JButton btnStart;
     private JButton btnConnect;
     private TicTacToeGame game;
     private int gridSize;
-    private JPanel gridPanel;
+    // One per think time, kept across games so repeated positions skip the search
+    private final Map<Long, EvalCache> engineCaches = new HashMap<>();
 
     public TicTacToeGUI() {
         game = new TicTacToeGame(this);
@@ -42,12 +53,15 @@ public class TicTacToeGUI extends JFrame implements ActionListener {
         ButtonGroup group = new ButtonGroup();
         rdoHost = new JRadioButton("Host (X)");
         rdoPlayer = new JRadioButton("Player (O)");
+        rdoComputer = new JRadioButton("Computer");
         group.add(rdoHost);
         group.add(rdoPlayer);
+        group.add(rdoComputer);
         rdoHost.setSelected(true);
 
         p.add(rdoHost);
         p.add(rdoPlayer);
+        p.add(rdoComputer);
         add(p);
 
         p = new JPanel();
@@ -61,6 +75,30 @@ public class TicTacToeGUI extends JFrame implements ActionListener {
         txtGridSize = new JTextField(2);
         txtGridSize.setText("3");
         p.add(txtGridSize);
+
+        lblWinLength = new JLabel("Win Length:");
+        p.add(lblWinLength);
+        txtWinLength = new JTextField(2);
+        txtWinLength.setToolTipText("Marks in a row needed to win");
+        txtWinLength.setText("3");
+        p.add(txtWinLength);
+
+        lblThinkTime = new JLabel("Think (ms):");
+        p.add(lblThinkTime);
+        txtThinkTime = new JTextField(4);
+        txtThinkTime.setToolTipText("Time the computer may spend on each move");
+        txtThinkTime.setText("1000");
+        p.add(txtThinkTime);
+
+        cmbEngine = new JComboBox<>(new String[] {"Alpha-beta", "MCTS"});
+        cmbEngine.setToolTipText("Alpha-beta plays small boards perfectly, MCTS copes better with large ones");
+        p.add(cmbEngine);
+
+        lblClock = new JLabel("Clock:");
+        p.add(lblClock);
+        txtClock = new JTextField(5);
+        txtClock.setToolTipText("Opponent's time in seconds, as base+increment (60+1) or move:seconds; empty for none");
+        p.add(txtClock);
         add(p);
 
         p = new JPanel();
@@ -79,14 +117,18 @@ public class TicTacToeGUI extends JFrame implements ActionListener {
 
         btnConnect.setVisible(false);
         txtIP.setVisible(false);
+        lblThinkTime.setVisible(false);
+        txtThinkTime.setVisible(false);
+        cmbEngine.setVisible(false);
 
 
-        gridPanel = new JPanel();
-        addGridButtons(3);
-        add(gridPanel);
+        board = new BoardComponent();
+        board.setCellListener(game::sendPlayerMove);
+        add(board);
 
         rdoHost.addActionListener(this);
         rdoPlayer.addActionListener(this);
+        rdoComputer.addActionListener(this);
         btnStart.addActionListener(this);
         btnConnect.addActionListener(this);
     }
@@ -96,6 +138,12 @@ public class TicTacToeGUI extends JFrame implements ActionListener {
         if (e.getSource() == rdoHost) {
             lblInfo.setText("Input port number");
             toggleField(true);
+            toggleComputerFields(false);
+        }
+        else if (e.getSource() == rdoComputer) {
+            lblInfo.setText("Play against the computer");
+            toggleField(true);
+            toggleComputerFields(true);
         }
         else if (e.getSource() == btnStart) {
             String regex = "^\\d{4,5}$";
@@ -108,8 +156,34 @@ public class TicTacToeGUI extends JFrame implements ActionListener {
                 showErrorMsg("Grid size must be between 3 and 10");
                 return;
             }
-            addGridButtons(gridSize);
+            if (!Pattern.matches("^\\d{1,2}$", txtWinLength.getText())) {
+                showErrorMsg("Invalid win length");
+                return;
+            }
+            int winLength = Integer.parseInt(txtWinLength.getText());
+            if (winLength < 3 || winLength > gridSize) {
+                showErrorMsg("Win length must be between 3 and the grid size");
+                return;
+            }
+            resetBoard(gridSize);
             game.setGridSize(gridSize);
+            game.setWinLength(winLength);
+
+            if (rdoComputer.isSelected()) {
+                if (!Pattern.matches("^\\d{1,5}$", txtThinkTime.getText())) {
+                    showErrorMsg("Invalid think time");
+                    return;
+                }
+                long thinkTime = Math.max(10, Long.parseLong(txtThinkTime.getText()));
+                disableAll();
+                pack();
+                // MCTS keeps its variety; alpha-beta answers a position it has seen from the cache
+                game.startComputerGame(cmbEngine.getSelectedIndex() == 1
+                        ? new MctsStrategy(thinkTime)
+                        : new CachedStrategy(engineCaches.computeIfAbsent(thinkTime, t -> new EvalCache(SelfPlay.CACHE_MB)),
+                                TableStrategy.withTable(gridSize, winLength, new AlphaBetaStrategy(thinkTime))));
+                return;
+            }
 
             if (!Pattern.matches(regex, txtPort.getText())) {
                 showErrorMsg("Invalid port number");
@@ -120,12 +194,14 @@ public class TicTacToeGUI extends JFrame implements ActionListener {
                 showErrorMsg("Port must be between 1024 and 65535");
                 return;
             }
+            if (!applyClock()) return;
             disableAll();
             pack();
             game.startServer(port);
         }
         else if (e.getSource() == rdoPlayer) {
             lblInfo.setText("Input host IP address and port");
+            toggleComputerFields(false);
             toggleField(false);
         }
         else if (e.getSource() == btnConnect) {
@@ -141,37 +217,90 @@ public class TicTacToeGUI extends JFrame implements ActionListener {
 
             final String host = m.group(1);
             final int port = Integer.parseInt(m.group(2));
+            if (!applyClock()) return;
             disableAll();
             pack();
             game.connectToServer(host, port);
         }
     }
 
-    public void addGridButtons(int size) {
-        gridBtn = new JButton[size][size];
-        gridPanel.removeAll();
-        gridPanel.setLayout(new GridLayout(size, size));
-        for (int i = 0; i < size * size; i++) {
-            int r = i / size;
-            int c = i % size;
-
-            JButton btn = new JButton(" ");
-            btn.setEnabled(false);
-            gridBtn[r][c] = btn;
-            btn.setFont(new Font("Arial", Font.PLAIN, 50));
-            btn.addActionListener(e -> {
-                if (game.isGameOver()) {
-                    return;
-                }
+    // An empty clock plays without one; an unreadable one is reported and returns false
+    private boolean applyClock() {
+        String text = txtClock.getText().trim();
+        try {
+            game.setTimeControl(text.isEmpty() ? null : TimeControl.parse(text));
+            return true;
+        } catch (IllegalArgumentException e) {
+            showErrorMsg("Invalid clock.\nUse base+increment or move:seconds, e.g. 60+1");
+            return false;
+        }
+    }
+
+    // Safe from any thread; the board keeps its size, so nothing is laid out again
+    public void resetBoard(int size) {
+        board.reset(size);
+    }
+
+    @Override
+    public void gameStarted(int size, String info) {
+        resetBoard(size);
+        setGridEnabled(true);
+        runOnEdt(() -> updateInfo(info));
+    }
+
+    @Override
+    public void movePlayed(int row, int col, char mark) {
+        updateGrid(row, col, mark);
+    }
+
+    @Override
+    public void statusChanged(String info) {
+        runOnEdt(() -> updateInfo(info));
+    }
+
+    @Override
+    public void gameOver(String result) {
+        runOnEdt(() -> {
+            updateInfo("Game over");
+            JOptionPane.showMessageDialog(getContentPane(), result, "Game over", JOptionPane.INFORMATION_MESSAGE);
+            displayGameOverDialog();
+        });
+    }
+
+    @Override
+    public void connected(String msg) {
+        runOnEdt(() -> showSuccessMsg(msg));
+    }
 
-                if (game.getPlayer() == game.getCurrentPlayer())
-                    game.sendPlayerMove(btn, r, c);
-            });
-            gridPanel.add(btn);
+    @Override
+    public void connectionFailed(String msg, String info) {
+        runOnEdt(() -> {
+            showErrorMsg(msg);
+            updateInfo(info);
+            rollback();
+        });
+    }
+
+    // Back to the setup controls after a failed host or connect
+    private void rollback() {
+        rdoHost.setEnabled(true);
+        rdoPlayer.setEnabled(true);
+        rdoComputer.setEnabled(true);
+        txtClock.setEnabled(true);
+        if (rdoHost.isSelected()) {
+            toggleField(true);
         }
-        revalidate();
-        repaint();
-        pack();
+        else if (rdoPlayer.isSelected()) {
+            toggleField(false);
+        }
+    }
+
+    @Override
+    public void gameFailed(String msg) {
+        runOnEdt(() -> {
+            showErrorMsg(msg);
+            System.exit(1);
+        });
     }
 
     // Method to display the dialog after the game is over
@@ -200,8 +329,7 @@ public class TicTacToeGUI extends JFrame implements ActionListener {
     }
 
     private void startRematch() {
-        game.setCurrentPlayer(game.getCurrentPlayer() == 'X' ? 'O' : 'X');
-        game.startGame();
+        game.startRematch();
     }
 
     private void quitGame() {
@@ -209,16 +337,18 @@ public class TicTacToeGUI extends JFrame implements ActionListener {
     }
 
     public void setGridEnabled(boolean enable) {
-        for (JButton[] jButtons : gridBtn) {
-            for (int j = 0; j < jButtons.length; j++) {
-                jButtons[j].setEnabled(enable);
-            }
-        }
+        board.setPlayable(enable);
     }
 
+    // Safe from any thread: repaints of the changed cells are coalesced onto the EDT
     public void updateGrid(int row, int col, char player) {
-        gridBtn[row][col].setText(String.valueOf(player));
-        gridBtn[row][col].setEnabled(false);
+        board.setMark(row, col, player);
+    }
+
+    // Game and network threads hand every other Swing update to the EDT through here
+    public void runOnEdt(Runnable r) {
+        if (SwingUtilities.isEventDispatchThread()) r.run();
+        else SwingUtilities.invokeLater(r);
     }
 
     public void updateInfo(String info) {
@@ -233,6 +363,10 @@ public class TicTacToeGUI extends JFrame implements ActionListener {
         return rdoPlayer;
     }
 
+    public JRadioButton getRdoComputer() {
+        return rdoComputer;
+    }
+
     public void showErrorMsg(String msg) {
         JOptionPane.showMessageDialog(
                 getContentPane(),
@@ -256,10 +390,16 @@ public class TicTacToeGUI extends JFrame implements ActionListener {
         txtPort.setEnabled(false);
         btnStart.setEnabled(false);
         rdoPlayer.setEnabled(false);
+        rdoComputer.setEnabled(false);
+        txtThinkTime.setEnabled(false);
+        cmbEngine.setEnabled(false);
         txtGridSize.setEnabled(false);
         lblGridSize.setEnabled(false);
+        txtWinLength.setEnabled(false);
+        lblWinLength.setEnabled(false);
         txtIP.setEnabled(false);
         btnConnect.setEnabled(false);
+        txtClock.setEnabled(false);
     }
 
     // True -> Host, False -> Player
@@ -276,6 +416,25 @@ public class TicTacToeGUI extends JFrame implements ActionListener {
         txtGridSize.setVisible(bool);
         lblGridSize.setEnabled(bool);
         lblGridSize.setVisible(bool);
+        txtWinLength.setEnabled(bool);
+        txtWinLength.setVisible(bool);
+        lblWinLength.setEnabled(bool);
+        lblWinLength.setVisible(bool);
+        pack();
+    }
+
+    // Computer mode reuses the host fields but swaps the port and clock for a think time
+    public void toggleComputerFields(boolean bool) {
+        txtPort.setEnabled(!bool);
+        txtPort.setVisible(!bool);
+        lblClock.setVisible(!bool);
+        txtClock.setEnabled(!bool);
+        txtClock.setVisible(!bool);
+        txtThinkTime.setEnabled(bool);
+        txtThinkTime.setVisible(bool);
+        lblThinkTime.setVisible(bool);
+        cmbEngine.setEnabled(bool);
+        cmbEngine.setVisible(bool);
         pack();
     }
 }
@@ -1,207 +1,522 @@
-import javax.swing.*;
-import java.awt.*;
+import java.io.DataOutput;
 import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
 
 public class TicTacToeGame {
+    // How long a network opponent may leave its turn untouched before the match is closed
+    static final long DEFAULT_IDLE_MILLIS = 120_000;
 
-    private final TicTacToeGUI gui;
+    private final GameListener listener;
     private final TicTacToeNetwork network;
     private int gridSize;
-    private char[][] grid;
+    private int winLength = 3;
+    private Board board;
     private char currentPlayer = 'X', player;
     private boolean gameOver = false;
     private int turnNo;
-
-    public TicTacToeGame(TicTacToeGUI gui) {
-        this.gui = gui;
+    // Counts games on this connection; both sides advance it in startGame()
+    private int gameNo;
+    private Thread reader;
+    private volatile boolean quitting;
+    private Strategy computer;
+    private Strategy localBot;
+    // Builds localBot for (gridSize, winLength); a joiner only learns the shape from START
+    private BiFunction<Integer, Integer, Strategy> localBotFactory;
+    private GameJournal journal;
+    private final byte[] moveLog = new byte[Board.MAX_SIZE * Board.MAX_SIZE];
+    private int firstSide;
+    private long startMillis;
+    // Engine searches, and timer expiries handed over from the wheel thread
+    private ExecutorService computerThread;
+    // Only the opponent's clock is kept here: what it had left when its turn began
+    private TimeControl timeControl;
+    private long opponentLeft;
+    private long opponentTurnStart;
+    private TimerWheel.Timeout opponentTimeout;
+    // TIMEOUTs sent that the opponent has not echoed yet; its moves in between are for lost games
+    private int unechoedTimeouts;
+    private long idleMillis = DEFAULT_IDLE_MILLIS;
+    private TimerWheel.Timeout opponentIdle;
+    // The last finished network game, journaled once the opponent's next move shows it has
+    // settled: until then a TIMEOUT that crossed our final move can still make it a loss
+    private final byte[] finishedMoves = new byte[Board.MAX_SIZE * Board.MAX_SIZE];
+    private int finishedResult = -1;
+    private int finishedEnded;
+    private int finishedFirstSide;
+    private int finishedCount;
+    private long finishedStart;
+    private long finishedEnd;
+
+    public TicTacToeGame(GameListener listener) {
+        this.listener = listener;
         this.network = new TicTacToeNetwork(this);
     }
 
-    public void startGame() {
-        grid = new char[gridSize][gridSize];
+    public synchronized void startGame() {
+        if (board == null || board.getGridSize() != gridSize || board.getWinLength() != winLength) {
+            board = new Board(gridSize, winLength);
+            if (localBotFactory != null) localBot = localBotFactory.apply(gridSize, winLength);
+        }
+        board.reset(Board.toSide(currentPlayer));
+        firstSide = board.getSideToMove();
+        startMillis = System.currentTimeMillis();
+        if (journal == null) journal = GameJournal.openDefault();
         gameOver = false;
-        gui.addGridButtons(gridSize);
-        gui.setGridEnabled(true);
         turnNo = 1;
+        gameNo++;
+        if (Metrics.ENABLED) Metrics.gamesStarted.increment();
+        network.broadcastNewGame(gridSize, winLength, firstSide);
+
+        String info = (player == currentPlayer) ? "Turn 1 - Your turn" : "Turn 1 - Opponent's turn";
+        listener.gameStarted(gridSize, info);
+
+        if (localBot != null && currentPlayer == player) scheduleBotMove();
+        if (timeControl != null && computer == null) {
+            opponentLeft = timeControl.initial();
+            if (currentPlayer != player) startOpponentClock();
+        }
+        if (computer == null && currentPlayer != player) armIdle();
+        if (computer != null) {
+            if (currentPlayer != player) scheduleComputerMove();
+        }
+        // One blocking reader per connection, kept across rematches
+        else if (reader == null) {
+            reader = new Thread(this::readMoves, "move-reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+        notifyAll();
+    }
+
+    // Single player: the computer takes the place of the network opponent
+    public void startComputerGame(Strategy strategy) {
+        computer = strategy;
+        startComputerThread();
+        player = 'X';
+        startGame();
+    }
+
+    // Headless network play: a strategy from the factory makes this side's moves, built for
+    // each board shape the games are played on. Call before hosting or connecting.
+    public void setLocalBot(BiFunction<Integer, Integer, Strategy> factory) {
+        localBotFactory = factory;
+        localBot = null;
+        board = null;
+        startComputerThread();
+    }
+
+    // The opponent loses a game if it takes longer than this allows. Call before hosting or
+    // connecting; the opponent may or may not hold us to a clock of its own.
+    public void setTimeControl(TimeControl timeControl) {
+        this.timeControl = timeControl;
+        startComputerThread();
+    }
+
+    // Network play only; 0 waits on the opponent for ever. Without it a peer that goes quiet
+    // leaves the reader blocked in receiveMove() with nothing to end the match.
+    public void setIdleTimeout(long millis) {
+        this.idleMillis = millis;
+    }
+
+    private void armIdle() {
+        if (opponentIdle != null) opponentIdle.cancel();
+        opponentIdle = null;
+        if (idleMillis <= 0) return;
+        startComputerThread();
+        int game = gameNo, ply = board.getMoveCount();
+        opponentIdle = TimerWheel.shared().schedule(
+                () -> computerThread.execute(() -> opponentIdled(game, ply)), idleMillis * 1_000_000L);
+    }
+
+    private void opponentIdled(int game, int ply) {
+        synchronized (this) {
+            // A finished game waits on our rematch, not on the opponent
+            if (gameOver || game != gameNo || ply != board.getMoveCount()) return;
+            opponentIdle = null;
+            quitting = true;
+        }
+        fail(String.format("Opponent made no move for %d seconds.", idleMillis / 1000));
+    }
+
+    // The wheel thread only hands the expiry over; the flag itself writes to the socket
+    private void startOpponentClock() {
+        opponentTurnStart = System.nanoTime();
+        int game = gameNo, ply = board.getMoveCount();
+        opponentTimeout = TimerWheel.shared().schedule(
+                () -> computerThread.execute(() -> opponentFlagged(game, ply)), opponentLeft);
+    }
+
+    private void stopOpponentClock() {
+        if (opponentTimeout == null) return;
+        opponentTimeout.cancel();
+        opponentTimeout = null;
+        // A move that beat the wheel's tick counts as in time
+        opponentLeft = timeControl.afterMove(Math.max(0, opponentLeft - (System.nanoTime() - opponentTurnStart)));
+    }
+
+    // On the computer thread: the opponent has not moved in time, unless it just did
+    private synchronized void opponentFlagged(int game, int ply) {
+        if (gameOver || game != gameNo || ply != board.getMoveCount()) return;
+        opponentTimeout = null;
+        gameOver = true;
+        unechoedTimeouts++;
+        if (Metrics.ENABLED) Metrics.gamesFinished.increment();
+        finish(Board.toSide(player), GameJournal.ENDED_ON_TIME);
+        network.sendTimeout(Board.toSide(player) ^ 1, gameNo);
+        listener.gameOver("You win on time.");
+    }
+
+    // A TIMEOUT from the opponent: the echo of ours, or our time ran out on its clock
+    private synchronized void timedOut(int side, int game) {
+        if (unechoedTimeouts > 0) {
+            unechoedTimeouts--;
+            return;
+        }
+        network.sendTimeout(side, game);
+        // Our final move crossed the TIMEOUT, so the opponent's clock decides that game
+        if (side == Board.toSide(player) && finishedResult >= 0 && finishedResult != (side ^ 1)
+                && (game != (gameNo & 0xFF) || gameOver)) {
+            finishedResult = side ^ 1;
+            // That move never counted there, so the game stopped short of it
+            if (finishedEnded == GameJournal.ENDED_ON_BOARD) finishedCount--;
+            finishedEnded = GameJournal.ENDED_ON_TIME;
+            listener.statusChanged("Result changed: you lost on time before your last move arrived.");
+        }
+        if (game != (gameNo & 0xFF)) {
+            // Our last move of that game never counted, and the opponent dropped whatever we
+            // played in the rematch since, so that game starts over
+            gameNo--;
+            startGame();
+            return;
+        }
+        if (gameOver) return;
+        if (opponentTimeout != null) {
+            opponentTimeout.cancel();
+            opponentTimeout = null;
+        }
+        gameOver = true;
+        // A move of ours that crossed the TIMEOUT has already passed the turn on here; the
+        // rematch flips from whoever was to move when the flag fell, as it does on the host
+        boolean crossed = currentPlayer != Board.toMark(side);
+        currentPlayer = Board.toMark(side);
+        if (Metrics.ENABLED) Metrics.gamesFinished.increment();
+        finish(side ^ 1, GameJournal.ENDED_ON_TIME);
+        // and the game is journaled without that move, which the host never played
+        if (crossed) finishedCount--;
+        listener.gameOver(side == Board.toSide(player) ? "You lose on time." : "You win on time.");
+    }
+
+    // Each side starts the next game on its own, with the other side moving first. A no-op if
+    // a resume has already moved us on to the game the host started.
+    public void startRematch() {
+        synchronized (this) {
+            if (!gameOver) return;
+            // currentPlayer is still the side that ended the game: the last mover, or the loser on time
+            currentPlayer = Board.toMark(Protocol.rematchFirstSide(Board.toSide(currentPlayer)));
+        }
+        startGame();
+    }
+
+    private void startComputerThread() {
+        if (computerThread != null) return;
+        computerThread = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "computer-opponent");
+            t.setDaemon(true);
+            return t;
+        });
+    }
 
-        if (player == currentPlayer)
-            gui.updateInfo("Turn 1 - Your turn");
-        else
-            gui.updateInfo("Turn 1 - Opponent's turn");
+    private void scheduleBotMove() {
+        Board position = new Board(board);
+        Strategy bot = localBot;
+        computerThread.execute(() -> {
+            int cell = bot.selectMove(position);
+            sendPlayerMove(cell / gridSize, cell % gridSize);
+        });
+    }
 
-        new Thread(() -> {
+    // Searches on a copy so the board stays consistent for the GUI while the computer thinks
+    private void scheduleComputerMove() {
+        Board position = new Board(board);
+        computerThread.execute(() -> {
+            int cell = computer.selectMove(position);
             try {
-                while (!gameOver) {
-                    if (player != currentPlayer) {
-                        receiveOpponentMove();
+                receiveOpponentMove(Protocol.move(position.getMoveCount(), cell), 0);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    // Sleeps in the socket read until the opponent moves, so an idle game costs no CPU.
+    // A dropped connection is resumed if the session allows it rather than ending the match;
+    // an illegal move is answered with an ERROR and does end it.
+    private void readMoves() {
+        try {
+            while (true) {
+                try {
+                    int move = network.receiveMove();
+                    long readAt = Metrics.ENABLED ? System.nanoTime() : 0;
+                    if (Protocol.isTimeout(move)) {
+                        timedOut(Protocol.timeoutSide(move), Protocol.timeoutGame(move));
+                        continue;
+                    }
+                    int error = receiveOpponentMove(move, readAt);
+                    if (error != Protocol.OK) {
+                        network.sendError(error, Protocol.moveSeq(move));
+                        throw new ProtocolException("Opponent made an illegal move: " + Protocol.errorName(error));
                     }
-                    Thread.sleep(1);
+                } catch (IOException e) {
+                    if (quitting || e instanceof ProtocolException) throw e;
+                    listener.statusChanged("Connection lost, trying to resume...");
+                    if (!network.awaitResume()) throw e;
+                    String info = gameOver ? "Game over" : (player == currentPlayer)
+                            ? String.format("Turn %d - Your turn", turnNo)
+                            : String.format("Turn %d - Opponent's turn", turnNo);
+                    listener.statusChanged(info);
                 }
-                gui.displayGameOverDialog();
             }
-            catch (InterruptedException e) {
-                e.printStackTrace();
+        } catch (IOException e) {
+            if (!quitting) {
+                fail(e instanceof ProtocolException ? e.getMessage() : "Error receiving move from opponent.");
             }
-        }).start();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    public void sendPlayerMove(JButton btn, int row, int col) {
+    public synchronized void sendPlayerMove(int row, int col) {
+        if (gameOver || player != currentPlayer || !board.isEmpty(board.cell(row, col))) {
+            return;
+        }
         try {
-            network.sendMove(row, col);
-            btn.setText(String.valueOf(player));
-            btn.setEnabled(false);
-            grid[row][col] = player;
+            if (computer == null) {
+                long start = Metrics.ENABLED ? System.nanoTime() : 0;
+                network.sendMove(board.getMoveCount(), row, col);
+                if (Metrics.ENABLED) {
+                    Metrics.serialization.record(System.nanoTime() - start);
+                    Metrics.movesSent.increment();
+                }
+            }
+            logMove(board.cell(row, col));
+            board.play(board.cell(row, col));
+            listener.movePlayed(row, col, player);
 
-            updatePlayer();
+            updatePlayer(row, col);
         }
         catch (IOException e) {
-            gui.showErrorMsg("Error sending move to opponent.");
-            network.close();
-            System.exit(1);
+            fail("Error sending move to opponent.");
         }
     }
 
-    public void receiveOpponentMove() {
-        try {
-            Move move = network.receiveMove();
-            int row = move.row;
-            int col = move.col;
-            grid[row][col] = currentPlayer;
-            gui.updateGrid(row, col, currentPlayer);
-
-            updatePlayer();
-        } catch (IOException | ClassNotFoundException e) {
-            gui.showErrorMsg("Error receiving move from opponent.");
-            network.close();
-            System.exit(1);
-        }
-    }
-
-    private synchronized void updatePlayer() {
-        char winner = getWinner();
-        if (winner != ' ') {
-            gui.updateInfo("Game over");
-            JOptionPane.showMessageDialog(
-                    gui.getContentPane(),
-                    (winner == player) ? "You win." : "You lose.",
-                    "Game over",
-                    JOptionPane.INFORMATION_MESSAGE
-            );
-            gameOver = true;
+    // Our board is the authority: the move is checked against it before anything changes.
+    // Returns Protocol.OK, or the error code if the move was rejected. readAt is when the move
+    // came off the socket, for move latency, or 0 if it is not to be timed.
+    private synchronized int receiveOpponentMove(int move, long readAt) throws InterruptedException {
+        if (unechoedTimeouts > 0) return Protocol.OK;
+        // The opponent may already be playing the rematch while our game over dialog is open
+        while (gameOver) {
+            wait();
+            // Time spent on the dialog is the user's, not latency
+            readAt = 0;
+        }
+        int error = Protocol.validateMove(board, Board.toSide(player) ^ 1, move);
+        if (error != Protocol.OK) {
+            if (Metrics.ENABLED) Metrics.movesRejected.increment();
+            return error;
+        }
+        if (timeControl != null) stopOpponentClock();
+        if (opponentIdle != null) {
+            opponentIdle.cancel();
+            opponentIdle = null;
         }
-        else if (turnNo == gridSize * gridSize) {
-            gui.updateInfo("Game over");
-            JOptionPane.showMessageDialog(
-                    gui.getContentPane(),
-                    "Draw.",
-                    "Game over",
-                    JOptionPane.INFORMATION_MESSAGE
-            );
+        // The opponent has moved on, so the game before this one is settled
+        recordFinished();
+        int cell = Protocol.moveCell(move);
+        int row = cell / gridSize;
+        int col = cell % gridSize;
+        char mark = currentPlayer;
+        if (Metrics.ENABLED) Metrics.movesReceived.increment();
+        logMove(cell);
+        board.play(cell);
+        listener.movePlayed(row, col, mark);
+
+        updatePlayer(row, col);
+        if (Metrics.ENABLED && readAt != 0) Metrics.moveLatency.record(System.nanoTime() - readAt);
+        return Protocol.OK;
+    }
+
+    private void updatePlayer(int row, int col) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        char winner = getWinner(row, col);
+        boolean over = winner != ' ' || board.isFull();
+        if (Metrics.ENABLED) Metrics.winCheck.record(System.nanoTime() - start);
+        if (over) {
+            if (Metrics.ENABLED) Metrics.gamesFinished.increment();
             gameOver = true;
+            finish(winner == ' ' ? GameJournal.RESULT_DRAW : Board.toSide(winner), GameJournal.ENDED_ON_BOARD);
+            String result = (winner == ' ') ? "Draw." : (winner == player) ? "You win." : "You lose.";
+            listener.gameOver(result);
         }
         else {
             if (currentPlayer == 'O') currentPlayer = 'X';
             else currentPlayer = 'O';
 
-            if (player == currentPlayer)
-                gui.updateInfo(String.format("Turn %d - Your turn", turnNo));
-            else
-                gui.updateInfo(String.format("Turn %d - Opponent's turn", turnNo));
+            String info = (player == currentPlayer)
+                    ? String.format("Turn %d - Your turn", turnNo)
+                    : String.format("Turn %d - Opponent's turn", turnNo);
+            listener.statusChanged(info);
 
             turnNo++;
+            if (computer != null && currentPlayer != player) {
+                scheduleComputerMove();
+            }
+            if (localBot != null && currentPlayer == player) {
+                scheduleBotMove();
+            }
+            if (timeControl != null && computer == null && currentPlayer != player) {
+                startOpponentClock();
+            }
+            if (computer == null && currentPlayer != player) armIdle();
         }
     }
 
-    public char getWinner() {
-        int winLength = 3;
-
-        // Check rows and columns
-        for (int i = 0; i < gridSize; i++) {
-            int sumXRow = 0, sumORow = 0;
-            int sumXCol = 0, sumOCol = 0;
-
-            for (int j = 0; j < gridSize; j++) {
-                // Rows
-                if (grid[i][j] == 'X') {
-                    sumXRow++;
-                    sumORow = 0;
-                } else if (grid[i][j] == 'O') {
-                    sumORow++;
-                    sumXRow = 0;
-                } else {
-                    sumXRow = sumORow = 0;
-                }
+    // Host side of a resume: everything in the current game the player has not seen,
+    // or the whole game if the player is on a different one
+    synchronized void writeResumed(DataOutput out, int playerGame, int seen) throws IOException {
+        int count = board.getMoveCount();
+        int from = playerGame == (gameNo & 0xFF) ? Math.min(seen, count) : 0;
+        Protocol.writeResumed(out, gameNo, firstSide, moveLog, from, count);
+    }
 
-                // Columns
-                if (grid[j][i] == 'X') {
-                    sumXCol++;
-                    sumOCol = 0;
-                } else if (grid[j][i] == 'O') {
-                    sumOCol++;
-                    sumXCol = 0;
-                } else {
-                    sumXCol = sumOCol = 0;
-                }
+    // Player side of a resume. Moves the host has and we don't are the host's, and are
+    // played as if they had just arrived; moves we have and the host doesn't were lost
+    // on the way out and are sent again.
+    synchronized void applyResumed(int resumed, byte[] hostMoves) throws IOException, InterruptedException {
+        int hostGame = Protocol.resumeGame(resumed);
+        int count = Protocol.resumeCount(resumed);
+        int mine = board.getMoveCount();
+        if (hostGame == (gameNo & 0xFF) && Protocol.resumeFrom(resumed) == Math.min(mine, count)) {
+            playHostMoves(hostMoves, mine, count);
+            for (int i = count; i < mine; i++) {
+                network.sendMove(i, moveLog[i] / gridSize, moveLog[i] % gridSize);
+            }
+        }
+        // The host has not started the rematch we are already playing, so any moves in it are ours
+        else if (hostGame == ((gameNo - 1) & 0xFF)) {
+            for (int i = 0; i < mine; i++) {
+                network.sendMove(i, moveLog[i] / gridSize, moveLog[i] % gridSize);
+            }
+        }
+        // The host has started the rematch we have not: it sent that game whole, and any moves
+        // in it are the host's, as we have not played there yet
+        else if (hostGame == ((gameNo + 1) & 0xFF) && Protocol.resumeFrom(resumed) == 0) {
+            if (!gameOver && mine > 0) record(GameJournal.RESULT_ABORTED);
+            currentPlayer = Board.toMark(Protocol.resumeFirstSide(resumed));
+            startGame();
+            playHostMoves(hostMoves, 0, count);
+        }
+        else {
+            throw new IOException("Cannot resume game " + hostGame + " from game " + gameNo);
+        }
+    }
 
-                // Check for a winner in this row or column
-                if (sumXRow == winLength || sumXCol == winLength) {
-                    return 'X';
-                }
-                if (sumORow == winLength || sumOCol == winLength) {
-                    return 'O';
-                }
+    private void playHostMoves(byte[] hostMoves, int from, int count) throws IOException, InterruptedException {
+        for (int i = from; i < count; i++) {
+            int error = receiveOpponentMove(Protocol.move(i, hostMoves[i] & 0xFF), 0);
+            if (error != Protocol.OK) {
+                throw new ProtocolException("Host resumed with an illegal move: " + Protocol.errorName(error));
             }
         }
+    }
 
-        // Check diagonals
-        for (int i = 0; i <= gridSize - winLength; i++) {
-            for (int j = 0; j <= gridSize - winLength; j++) {
-                int sumXDiag1 = 0, sumODiag1 = 0;
-                int sumXDiag2 = 0, sumODiag2 = 0;
-
-                for (int k = 0; k < winLength; k++) {
-                    // Diagonal from top left to bottom right
-                    if (grid[i + k][j + k] == 'X') {
-                        sumXDiag1++;
-                        sumODiag1 = 0;
-                    } else if (grid[i + k][j + k] == 'O') {
-                        sumODiag1++;
-                        sumXDiag1 = 0;
-                    } else {
-                        sumXDiag1 = sumODiag1 = 0;
-                    }
+    // Every move of either side passes through here, so it is also where spectators hear of it
+    private void logMove(int cell) {
+        moveLog[board.getMoveCount()] = (byte) cell;
+        network.broadcastMove(board.getMoveCount(), cell);
+    }
 
-                    // Diagonal from top right to bottom left
-                    if (grid[i + k][j + winLength - 1 - k] == 'X') {
-                        sumXDiag2++;
-                        sumODiag2 = 0;
-                    } else if (grid[i + k][j + winLength - 1 - k] == 'O') {
-                        sumODiag2++;
-                        sumXDiag2 = 0;
-                    } else {
-                        sumXDiag2 = sumODiag2 = 0;
-                    }
+    // Computer games can't be flagged by anyone, so they are journaled straight away
+    private void finish(int result, int ended) {
+        recordFinished();
+        finishedResult = result;
+        finishedEnded = ended;
+        finishedFirstSide = firstSide;
+        finishedCount = board.getMoveCount();
+        System.arraycopy(moveLog, 0, finishedMoves, 0, finishedCount);
+        finishedStart = startMillis;
+        finishedEnd = System.currentTimeMillis();
+        if (computer != null) recordFinished();
+    }
 
-                    // Check for a winner in this diagonal
-                    if (sumXDiag1 == winLength || sumXDiag2 == winLength) {
-                        return 'X';
-                    }
-                    if (sumODiag1 == winLength || sumODiag2 == winLength) {
-                        return 'O';
-                    }
-                }
-            }
+    private void recordFinished() {
+        if (finishedResult < 0) return;
+        record(finishedFirstSide, finishedResult, finishedEnded, finishedStart, finishedEnd, finishedMoves, finishedCount);
+        finishedResult = -1;
+    }
+
+    private void record(int result) {
+        record(firstSide, result, GameJournal.ENDED_ON_BOARD, startMillis, System.currentTimeMillis(), moveLog,
+                board.getMoveCount());
+    }
+
+    private void record(int firstSide, int result, int ended, long startMillis, long endMillis, byte[] moves, int count) {
+        if (journal == null) return;
+        // Each side journals from its own point of view: we are the human at this screen
+        int opponent = computer != null ? GameJournal.PLAYER_COMPUTER : GameJournal.PLAYER_REMOTE;
+        journal.record(gridSize, winLength, firstSide, result, ended,
+                player == 'X' ? GameJournal.PLAYER_HUMAN : opponent,
+                player == 'O' ? GameJournal.PLAYER_HUMAN : opponent,
+                startMillis, endMillis, moves, count);
+    }
+
+    private void fail(String msg) {
+        synchronized (this) {
+            recordFinished();
         }
+        network.close();
+        listener.gameFailed(msg);
+    }
 
+    // Only the lines through the last move can have changed, so check just those windows
+    public char getWinner(int row, int col) {
+        int cell = board.cell(row, col);
+        int side = board.get(cell);
+        if (side >= 0 && board.isWinningCell(cell, side)) {
+            return Board.toMark(side);
+        }
         return ' ';
     }
 
-    public TicTacToeGUI getGui() {
-        return gui;
+    public char getWinner() {
+        return Board.toMark(board.winner());
+    }
+
+    public char getMark(int row, int col) {
+        return Board.toMark(board.get(board.cell(row, col)));
+    }
+
+    int getGameNo() {
+        return gameNo;
     }
 
-    public void startServer(int port ) {
-        network.startServer(port);
+    public Board getBoard() {
+        return board;
+    }
+
+    public GameListener getListener() {
+        return listener;
+    }
+
+    public boolean startServer(int port) {
+        return network.startServer(port);
+    }
+
+    public int getLocalPort() {
+        return network.getLocalPort();
     }
 
     public void connectToServer(String host, int port) {
@@ -216,6 +531,15 @@ public class TicTacToeGame {
         this.gridSize = gridSize;
     }
 
+    public int getWinLength() {
+        return winLength;
+    }
+
+    // Win length can never exceed the grid size, and anything below 3 is trivial
+    public void setWinLength(int winLength) {
+        this.winLength = Math.max(3, Math.min(winLength, gridSize));
+    }
+
     public char getCurrentPlayer() {
         return currentPlayer;
     }
@@ -232,11 +556,25 @@ public class TicTacToeGame {
         this.player = player;
     }
 
-    public boolean isGameOver() {
+    public synchronized boolean isGameOver() {
         return gameOver;
     }
 
     public void quitGame() {
+        quitting = true;
+        synchronized (this) {
+            recordFinished();
+            if (!gameOver && board != null && board.getMoveCount() > 0) {
+                record(GameJournal.RESULT_ABORTED);
+            }
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
         network.close();
         System.exit(0);
     }
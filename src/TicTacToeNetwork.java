@@ -1,133 +1,325 @@
-import javax.swing.*;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.PushbackInputStream;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.security.SecureRandom;
 
 public class TicTacToeNetwork {
+    private static final int HELLO_TIMEOUT_MILLIS = 5000;
+    // How long either side keeps a dropped match open for the player to come back
+    private static final int RESUME_WINDOW_MILLIS = 30_000;
+
     private ServerSocket serverSocket;
+    private SpectatorHub spectators;
     private Socket socket;
-    private ObjectOutputStream out;
-    private ObjectInputStream in;
+    private DataOutputStream out;
+    private DataInputStream in;
     private final TicTacToeGame game;
+    // Session of the current match, 0 if it can't be resumed
+    private long token;
+    private boolean resumed;
+    private String host;
+    private int port;
+    private final byte[] resumeMoves = new byte[Board.MAX_SIZE * Board.MAX_SIZE];
 
     public TicTacToeNetwork(TicTacToeGame game) {
         this.game = game;
     }
 
-    public void startServer(int port) {
+    // Binds before returning, so the host is accepting as soon as this returns true
+    public boolean startServer(int port) {
+        GameListener listener = game.getListener();
         try {
-            serverSocket = new ServerSocket(port);
+            // Channel-backed so spectator sockets can be handed to the selector in SpectatorHub
+            serverSocket = ServerSocketChannel.open().bind(new InetSocketAddress(port)).socket();
+            spectators = new SpectatorHub();
         } catch (IOException e) {
-            game.getGui().showErrorMsg("Error starting server.");
-            rollbackGUI();
+            listener.connectionFailed("Error starting server.", "Starting server failed. Try Again!");
+            return false;
         }
 
-        new Thread(() -> {
-            synchronized (this) {
+        listener.statusChanged("Waiting for player to connect...");
+        Thread t = new Thread(this::acceptLoop, "host-accept");
+        t.setDaemon(true);
+        t.start();
+        return true;
+    }
+
+    public int getLocalPort() {
+        return serverSocket == null ? -1 : serverSocket.getLocalPort();
+    }
+
+    // The first player to say hello becomes the opponent; spectators may join at any time
+    private void acceptLoop() {
+        GameListener listener = game.getListener();
+        boolean opponentJoined = false;
+        while (true) {
+            Socket s;
             try {
-                game.getGui().updateInfo("Waiting for player to connect...");
-                socket = serverSocket.accept();
-                initializeStreams();
-                sendGridSize(game.getGridSize()); // Send grid size to the player
+                s = serverSocket.accept();
+            } catch (IOException e) {
+                if (!opponentJoined && !serverSocket.isClosed()) {
+                    listener.connectionFailed("Error starting server.", "Starting server failed. Try Again!");
+                }
+                return;
+            }
+            try {
+                s.setSoTimeout(HELLO_TIMEOUT_MILLIS);
+                // Unbuffered so nothing past the first frame is consumed here
+                PushbackInputStream first = new PushbackInputStream(s.getInputStream(), 1);
+                int type = first.read();
+                if (type < 0) throw new EOFException();
+                first.unread(type);
+                if (type == Protocol.RESUME) {
+                    resumeOpponent(s, new DataInputStream(first));
+                    continue;
+                }
+                int hello = Protocol.readHello(new DataInputStream(first));
+                s.setSoTimeout(0);
+                if (Protocol.role(hello) == Protocol.ROLE_SPECTATOR) {
+                    s.setTcpNoDelay(true);
+                    spectators.attach(s.getChannel());
+                }
+                else if (!opponentJoined) {
+                    synchronized (this) {
+                        socket = s;
+                        initializeStreams();
+                        Protocol.writeStart(out, game.getGridSize(), game.getWinLength(), 'O'); // Player is 'O'
+                        token = newToken();
+                        Protocol.writeSession(out, token);
+                        out.flush();
+                    }
+                    opponentJoined = true;
 
-                game.getGui().showSuccessMsg(String.format( "Opponent connected from %s", socket.getInetAddress().getHostAddress()));
+                    String address = s.getInetAddress().getHostAddress();
+                    listener.connected(String.format("Opponent connected from %s", address));
 
-                game.setPlayer('X'); // Player is 'X' if hosting a game
-                game.startGame();
+                    game.setPlayer('X'); // Player is 'X' if hosting a game
+                    game.startGame();
+                }
+                else {
+                    s.close();
+                }
             } catch (IOException e) {
-                game.getGui().showErrorMsg("Error starting server.");
-                game.getGui().updateInfo("Starting server failed. Try Again!");
-                rollbackGUI();
+                try {
+                    s.close();
+                } catch (IOException ignored) {
+                    // Already gone
+                }
             }
+        }
+    }
+
+    // The player came back on a new connection: swap it in and send what it missed.
+    // Lock order is game then network, the same as sendPlayerMove -> sendMove.
+    private void resumeOpponent(Socket s, DataInputStream first) throws IOException {
+        int resume = Protocol.readResume(first, token);
+        s.setSoTimeout(0);
+        synchronized (game) {
+            synchronized (this) {
+                closeConnection();
+                socket = s;
+                initializeStreams();
+                game.writeResumed(out, resume >>> 8, resume & 0xFF);
+                out.flush();
+                resumed = true;
+                notifyAll();
+            }
+        }
+    }
+
+    // Called by the game's reader thread once the connection has dropped. The host waits
+    // for the player to come back; the player dials the host again. False if the match
+    // can't be resumed within the window.
+    public boolean awaitResume() throws InterruptedException {
+        return serverSocket != null ? awaitPlayer() : reconnect();
+    }
+
+    private synchronized boolean awaitPlayer() throws InterruptedException {
+        if (token == 0) return false;
+        long deadline = System.currentTimeMillis() + RESUME_WINDOW_MILLIS;
+        while (!resumed) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) return false;
+            wait(left);
+        }
+        resumed = false;
+        return true;
+    }
+
+    // One round trip: RESUME with where we are, RESUMED with only what we missed
+    private boolean reconnect() throws InterruptedException {
+        if (token == 0) return false;
+        long deadline = System.currentTimeMillis() + RESUME_WINDOW_MILLIS;
+        long backoff = 100;
+        while (System.currentTimeMillis() < deadline) {
+            Socket s = new Socket();
+            try {
+                s.connect(new InetSocketAddress(host, port), HELLO_TIMEOUT_MILLIS);
+                s.setSoTimeout(HELLO_TIMEOUT_MILLIS);
+                s.setTcpNoDelay(true);
+                DataOutputStream o = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                DataInputStream i = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                int gameNo, seen;
+                synchronized (game) {
+                    gameNo = game.getGameNo();
+                    seen = game.getBoard().getMoveCount();
+                }
+                // The round trip runs without the game lock so a click on the EDT is never
+                // stuck behind it. Moves made meanwhile fail quietly on the old connection
+                // and are sent again by applyResumed().
+                Protocol.writeResume(o, token, gameNo & 0xFF, seen);
+                o.flush();
+                int resumed = Protocol.readResumed(i, resumeMoves);
+                s.setSoTimeout(0);
+                synchronized (game) {
+                    synchronized (this) {
+                        closeConnection();
+                        if (Metrics.ENABLED) Metrics.activeConnections.increment();
+                        socket = s;
+                        out = o;
+                        in = i;
+                        game.applyResumed(resumed, resumeMoves);
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                try {
+                    s.close();
+                } catch (IOException ignored) {
+                    // Already gone
+                }
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, 2000);
             }
-        }).start();
+        }
+        return false;
+    }
+
+    private static long newToken() {
+        long token;
+        do {
+            token = new SecureRandom().nextLong();
+        } while (token == 0);
+        return token;
+    }
+
+    // Hooks for the game; both are no-ops unless we are hosting
+    public void broadcastMove(int seq, int cell) {
+        if (spectators != null) spectators.move(seq, cell);
+    }
+
+    public void broadcastNewGame(int gridSize, int winLength, int firstSide) {
+        if (spectators != null) spectators.newGame(gridSize, winLength, firstSide);
     }
 
     public void connectToServer(String host, int port) {
+        GameListener listener = game.getListener();
+        listener.statusChanged(String.format("Connecting to %s:%d...", host, port));
         new Thread(() -> {
             synchronized (this) {
                 try {
-                    game.getGui().updateInfo(String.format("Connecting to %s:%d...", host, port));
                     close();
                     socket = new Socket(host, port);
                     initializeStreams();
-                    int gridSize = receiveGridSize(); // Receive grid size from the server
-                    game.setGridSize(gridSize);
+                    Protocol.writeHello(out, Protocol.ROLE_PLAYER, 0, 0);
+                    out.flush();
+                    int start = Protocol.readStart(in); // Receive grid size and win length from the host
+                    token = Protocol.readSession(in);
+                    this.host = host;
+                    this.port = port;
+                    game.setGridSize(Protocol.gridSize(start));
+                    game.setWinLength(Protocol.winLength(start));
 
-                    game.getGui().addGridButtons(gridSize);
-                    game.getGui().showSuccessMsg("Connected to host. Game started!");
+                    listener.connected("Connected to host. Game started!");
 
-                    game.setPlayer('O'); // Player is 'O' if connected to a host
+                    game.setPlayer(Protocol.side(start)); // Player is 'O' if connected to a host
                     game.startGame();
                 } catch (IOException e) {
-                    game.getGui().showErrorMsg(
-                            String.format("Failed to connect to %s:%d", host, port)
-                    );
-                    game.getGui().updateInfo("Connection failed. Try Again!");
-                    rollbackGUI();
+                    listener.connectionFailed(String.format("Failed to connect to %s:%d", host, port),
+                            "Connection failed. Try Again!");
                 }
             }
-        }).start();
-    }
-
-    private void rollbackGUI() {
-        game.getGui().getRdoHost().setEnabled(true);
-        game.getGui().getRdoPlayer().setEnabled(true);
-        if (game.getGui().getRdoHost().isSelected()) {
-            game.getGui().toggleField(true);
-        }
-        else if (game.getGui().getRdoPlayer().isSelected()) {
-            game.getGui().toggleField(false);
-        }
+        }, "player-connect").start();
     }
 
     private void initializeStreams() throws IOException {
-        out = new ObjectOutputStream(socket.getOutputStream());
-        out.flush();
-        in = new ObjectInputStream(socket.getInputStream());
+        if (Metrics.ENABLED) Metrics.activeConnections.increment();
+        socket.setTcpNoDelay(true);
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
     }
 
-    public Move receiveMove() throws IOException, ClassNotFoundException {
-        return (Move) in.readObject();
+    // Returns the opponent's move as decoded, seq << 8 | cell; the game validates it
+    public int receiveMove() throws IOException {
+        DataInputStream i = in;
+        if (!Metrics.ENABLED) return Protocol.readMove(i);
+        // Waits for the frame's first byte so only the decode is timed, not the opponent's turn
+        i.mark(1);
+        if (i.read() < 0) throw new EOFException();
+        i.reset();
+        long start = System.nanoTime();
+        int move = Protocol.readMove(i);
+        Metrics.serialization.record(System.nanoTime() - start);
+        return move;
     }
 
-    public void sendMove(int row, int col) throws IOException {
-        Move move = new Move(row, col);
-        out.writeObject(move);
-        out.flush();
+    // Best effort, like sendError(): a lost TIMEOUT only leaves the opponent waiting on its own clock
+    public synchronized void sendTimeout(int side, int game) {
+        try {
+            Protocol.writeTimeout(out, side, game);
+            out.flush();
+        } catch (IOException e) {
+            // Gone already
+        }
     }
 
-    public void close() {
+    // Best effort: the connection is closed right after a rejected move anyway
+    public synchronized void sendError(int code, int seq) {
         try {
-            if (out != null) out.close();
-            if (in != null) in.close();
-            if (socket != null) socket.close();
-            if (serverSocket != null) serverSocket.close();
+            Protocol.writeError(out, code, seq);
+            out.flush();
         } catch (IOException e) {
-            e.printStackTrace();
+            // Nobody left to tell
         }
     }
 
-    private void sendGridSize(int gridSize) {
+    // In a resumable session a failed send is not an error: the move is in the game's
+    // log and goes out again when the connection is resumed
+    public synchronized void sendMove(int seq, int row, int col) throws IOException {
         try {
-            out.writeInt(gridSize);
+            Protocol.writeMove(out, seq, row * game.getGridSize() + col);
             out.flush();
         } catch (IOException e) {
-            e.printStackTrace();
-            game.getGui().showErrorMsg("Error sending grid size.");
-            System.exit(1);
+            if (token == 0) throw e;
         }
     }
 
-    private int receiveGridSize() {
+    private void closeConnection() throws IOException {
+        if (Metrics.ENABLED && socket != null && !socket.isClosed()) Metrics.activeConnections.decrement();
         try {
-            return in.readInt();
+            if (out != null) out.close();
+        } catch (IOException e) {
+            // The peer is gone; nothing left to flush to
+        }
+        if (in != null) in.close();
+        if (socket != null) socket.close();
+    }
+
+    public void close() {
+        try {
+            closeConnection();
+            if (serverSocket != null) serverSocket.close();
+            if (spectators != null) spectators.close();
         } catch (IOException e) {
             e.printStackTrace();
-            game.getGui().showErrorMsg("Error receiving grid size.");
-            return -1;
         }
     }
 }
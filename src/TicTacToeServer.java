@@ -0,0 +1,555 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+// Headless server hosting many matches at once. One acceptor thread hands sockets
+// to a few selector loops; a match and both of its seats always live on one loop,
+// so match state is only ever touched by that loop's thread. Players are paired by
+// the grid size and win length in their HELLO (0 means the server default) through
+// a lock-free Lobby; a joiner paired with a seat on another loop is moved there.
+// Clocks and idle limits are deadlines on the shared TimerWheel; when one fires the
+// wheel only queues the match or seat back to its loop, which checks it there.
+public class TicTacToeServer {
+    private final int port;
+    private final int gridSize;
+    private final int winLength;
+    private final EventLoop[] loops;
+    private final Lobby<Seat> lobby = new Lobby<>();
+    private ServerSocketChannel acceptor;
+    private volatile boolean running;
+    private GameJournal journal;
+    private TimeControl timeControl;
+    private long idleNanos;
+
+    public TicTacToeServer(int port, int threads, int gridSize, int winLength) throws IOException {
+        // Validates the settings up front
+        new Board(gridSize, winLength);
+        this.port = port;
+        this.gridSize = gridSize;
+        this.winLength = winLength;
+        this.loops = new EventLoop[Math.max(1, threads)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(i);
+        }
+    }
+
+    public void start() throws IOException {
+        acceptor = ServerSocketChannel.open();
+        acceptor.bind(new InetSocketAddress(port), 1024);
+        running = true;
+        for (EventLoop loop : loops) {
+            Thread t = new Thread(loop, "server-loop-" + loop.id);
+            t.setDaemon(true);
+            t.start();
+        }
+        Thread t = new Thread(this::acceptLoop, "server-accept");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // Finished (and abandoned) games are appended here when set; call before start()
+    public void setJournal(GameJournal journal) {
+        this.journal = journal;
+    }
+
+    // Clocks for every match; a player whose time runs out loses that game. Call before start().
+    public void setTimeControl(TimeControl timeControl) {
+        this.timeControl = timeControl;
+    }
+
+    // Closes connections that go this long without sending anything while it is up to them:
+    // before their HELLO, waiting in the lobby, or on move. Call before start().
+    public void setIdleTimeout(long millis) {
+        this.idleNanos = millis * 1_000_000L;
+    }
+
+    public int getLocalPort() {
+        try {
+            return ((InetSocketAddress) acceptor.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    public long getPairings() {
+        return lobby.getPairings();
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            acceptor.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        // Consecutive connections go to the same loop, so most pairs never change loops
+        long accepted = 0;
+        while (running) {
+            try {
+                SocketChannel ch = acceptor.accept();
+                ch.configureBlocking(false);
+                ch.socket().setTcpNoDelay(true);
+                loops[(int) ((accepted++ >> 1) % loops.length)].add(ch);
+            } catch (IOException e) {
+                if (running) {
+                    e.printStackTrace();
+                    // Out of file descriptors: give the loops a moment to close some
+                    LockSupport.parkNanos(10_000_000L);
+                }
+            }
+        }
+    }
+
+    // One per match, owned by a single event loop
+    static final class Match {
+        final Board board;
+        final Seat[] seats = new Seat[2];
+        final byte[] moves = new byte[Board.MAX_SIZE * Board.MAX_SIZE];
+        int firstSide = Board.X;
+        long startMillis = System.currentTimeMillis();
+        // Counted from 1, as TicTacToeGame does, since TIMEOUT frames carry it
+        int gameNo = 1;
+        EventLoop loop;
+        boolean closed;
+        // With a time control: nanos left per side when the current turn began
+        final long[] remaining = new long[2];
+        long turnStart;
+        TimerWheel.Timeout timeout;
+        long armedDeadline;
+
+        Match(Board board) {
+            this.board = board;
+        }
+    }
+
+    // One per connection, attached to its selection key
+    static final class Seat {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(64);
+        final ByteBuffer out = ByteBuffer.allocate(256);
+        SelectionKey key;
+        volatile EventLoop loop;
+        Match match;
+        int side = -1;
+        int bucket = -1;
+        long lastActive = System.nanoTime();
+        TimerWheel.Timeout idle;
+        // TIMEOUTs sent that the client has not echoed yet; its moves in between are for lost games
+        int unechoedTimeouts;
+
+        Seat(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    final class EventLoop implements Runnable {
+        final int id;
+        final Selector selector;
+        final ConcurrentLinkedQueue<SocketChannel> incoming = new ConcurrentLinkedQueue<>();
+        // Pairs whose first seat lives here: {waiting seat, joiner from another loop}
+        final ConcurrentLinkedQueue<Seat[]> handoffs = new ConcurrentLinkedQueue<>();
+        // Matches and seats whose timer went off
+        final ConcurrentLinkedQueue<Object> expired = new ConcurrentLinkedQueue<>();
+
+        EventLoop(int id) throws IOException {
+            this.id = id;
+            this.selector = Selector.open();
+        }
+
+        void add(SocketChannel ch) {
+            incoming.add(ch);
+            selector.wakeup();
+        }
+
+        // Called on the timer wheel thread
+        void expire(Object matchOrSeat) {
+            expired.add(matchOrSeat);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    registerIncoming();
+                    startHandoffs();
+                    checkTimers();
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        Seat seat = (Seat) key.attachment();
+                        // Closing one seat of a match cancels its partner's key too
+                        if (!key.isValid()) continue;
+                        try {
+                            if (key.isReadable()) read(seat);
+                            if (key.isValid() && key.isWritable()) flush(seat);
+                        } catch (IOException e) {
+                            closeMatch(seat);
+                        }
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                if (running) {
+                    e.printStackTrace();
+                }
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    closeQuietly((Seat) key.attachment());
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private void registerIncoming() {
+            SocketChannel ch;
+            while ((ch = incoming.poll()) != null) {
+                Seat seat = new Seat(ch);
+                if (Metrics.ENABLED) Metrics.activeConnections.increment();
+                try {
+                    register(seat);
+                } catch (IOException e) {
+                    closeQuietly(seat);
+                }
+            }
+        }
+
+        private void register(Seat seat) throws IOException {
+            try {
+                seat.key = seat.channel.register(selector, SelectionKey.OP_READ, seat);
+            } catch (CancelledKeyException e) {
+                // The seat left this loop earlier and its old key is not deregistered yet
+                selector.selectNow();
+                seat.key = seat.channel.register(selector, SelectionKey.OP_READ, seat);
+            }
+            seat.loop = this;
+            if (idleNanos > 0 && seat.idle == null) {
+                armIdle(seat, idleNanos);
+            }
+        }
+
+        private void checkTimers() {
+            long now = System.nanoTime();
+            Object o;
+            while ((o = expired.poll()) != null) {
+                if (o instanceof Match) {
+                    Match match = (Match) o;
+                    match.timeout = null;
+                    if (match.closed) continue;
+                    int side = match.board.getSideToMove();
+                    if (now - match.turnStart >= match.remaining[side]) {
+                        flag(match, side, now);
+                    } else {
+                        armClock(match, now);
+                    }
+                } else {
+                    Seat seat = (Seat) o;
+                    if (seat.loop != this) {
+                        // Moved to another loop since the timer was set
+                        seat.loop.expire(seat);
+                        continue;
+                    }
+                    seat.idle = null;
+                    if (!seat.channel.isOpen()) continue;
+                    // Waiting on the opponent's move is not idling
+                    boolean waiting = seat.match != null && seat.match.board.getSideToMove() != seat.side;
+                    long idleFor = now - seat.lastActive;
+                    if (!waiting && idleFor >= idleNanos) {
+                        closeMatch(seat);
+                    } else {
+                        armIdle(seat, waiting ? idleNanos : idleNanos - idleFor);
+                    }
+                }
+            }
+        }
+
+        private void armIdle(Seat seat, long delayNanos) {
+            seat.idle = TimerWheel.shared().schedule(() -> seat.loop.expire(seat), delayNanos);
+        }
+
+        // Set for the side to move's deadline, unless already set to go off sooner. Going off
+        // early is harmless: checkTimers() finds time left and arms it again.
+        private void armClock(Match match, long now) {
+            long deadline = match.turnStart + match.remaining[match.board.getSideToMove()];
+            if (match.timeout != null) {
+                if (match.armedDeadline <= deadline) return;
+                match.timeout.cancel();
+            }
+            match.armedDeadline = deadline;
+            match.timeout = TimerWheel.shared().schedule(() -> match.loop.expire(match), deadline - now);
+        }
+
+        private void startClocks(Match match, long now) {
+            match.remaining[0] = match.remaining[1] = timeControl.initial();
+            match.turnStart = now;
+            armClock(match, now);
+        }
+
+        // The side to move ran out of time: it loses, both players hear so, and the next game starts
+        private void flag(Match match, int loser, long now) {
+            if (Metrics.ENABLED) Metrics.gamesFinished.increment();
+            record(match, loser ^ 1, GameJournal.ENDED_ON_TIME);
+            try {
+                for (Seat s : match.seats) {
+                    s.unechoedTimeouts++;
+                    reserve(s, Protocol.TIMEOUT_SIZE);
+                    Protocol.writeTimeout(s.out, loser, match.gameNo);
+                    flush(s);
+                }
+            } catch (IOException e) {
+                closeMatch(match.seats[0]);
+                return;
+            }
+            nextGame(match, loser, now);
+        }
+
+        // endedBy made the last move or lost on time; clients start their rematch the same way
+        private void nextGame(Match match, int endedBy, long now) {
+            if (Metrics.ENABLED) Metrics.gamesStarted.increment();
+            match.gameNo++;
+            match.firstSide = Protocol.rematchFirstSide(endedBy);
+            match.board.reset(match.firstSide);
+            match.startMillis = System.currentTimeMillis();
+            if (timeControl != null) startClocks(match, now);
+        }
+
+        private void handoff(Seat waiting, Seat joiner) {
+            handoffs.add(new Seat[] {waiting, joiner});
+            selector.wakeup();
+        }
+
+        private void startHandoffs() {
+            Seat[] pair;
+            while ((pair = handoffs.poll()) != null) {
+                Seat joiner = pair[1];
+                try {
+                    register(joiner);
+                    if (pair[0].channel.isOpen()) {
+                        startMatch(pair[0], joiner);
+                    } else {
+                        // The waiting player left while the joiner was in transit
+                        join(joiner);
+                    }
+                } catch (IOException e) {
+                    closeMatch(joiner);
+                }
+            }
+        }
+
+        private void read(Seat seat) throws IOException {
+            if (seat.channel.read(seat.in) < 0) {
+                throw new IOException("Peer closed connection");
+            }
+            seat.lastActive = System.nanoTime();
+            ByteBuffer in = seat.in;
+            in.flip();
+            while (in.hasRemaining()) {
+                int size = Protocol.frameSize(in.get(in.position()) & 0xFF);
+                if (size < 0) {
+                    throw new ProtocolException("Unknown frame type");
+                }
+                if (in.remaining() < size) {
+                    break;
+                }
+                if (seat.bucket < 0) {
+                    seat.bucket = bucket(Protocol.readHello(in));
+                    // Done with the buffer first: join may hand the seat to another loop
+                    in.compact();
+                    join(seat);
+                    return;
+                } else if (seat.match != null) {
+                    int move = Protocol.readMove(in);
+                    if (Protocol.isTimeout(move)) {
+                        if (seat.unechoedTimeouts > 0) seat.unechoedTimeouts--;
+                    } else if (seat.unechoedTimeouts > 0) {
+                        // Made before the client heard it had lost on time
+                    } else if (!onMove(seat, move)) {
+                        return;
+                    }
+                } else {
+                    throw new ProtocolException("Move before the match started");
+                }
+            }
+            in.compact();
+        }
+
+        private int bucket(int hello) throws ProtocolException {
+            int grid = Protocol.gridSize(hello) == 0 ? gridSize : Protocol.gridSize(hello);
+            int win = Protocol.winLength(hello) == 0 ? Math.min(winLength, grid) : Protocol.winLength(hello);
+            if (grid < 3 || grid > Board.MAX_SIZE || win < 3 || win > grid) {
+                throw new ProtocolException("Unsupported game settings " + grid + "/" + win);
+            }
+            return Lobby.bucket(grid, win);
+        }
+
+        private void join(Seat seat) throws IOException {
+            Seat waiting = lobby.join(seat.bucket, seat, s -> s.channel.isOpen());
+            if (waiting == null) return;
+            if (waiting.loop == this) {
+                startMatch(waiting, seat);
+            } else {
+                // The match lives with the seat that was already waiting. Stop reading the
+                // joiner here; the other loop only touches it after this read has finished.
+                seat.key.cancel();
+                waiting.loop.handoff(waiting, seat);
+            }
+        }
+
+        private void startMatch(Seat first, Seat second) throws IOException {
+            Match match = new Match(new Board(Lobby.gridSize(first.bucket), Lobby.winLength(first.bucket)));
+            match.board.reset(Board.X);
+            match.loop = this;
+            if (Metrics.ENABLED) Metrics.gamesStarted.increment();
+            seat(match, first, Board.X);
+            seat(match, second, Board.O);
+            if (timeControl != null) startClocks(match, System.nanoTime());
+        }
+
+        private void seat(Match match, Seat seat, int side) throws IOException {
+            match.seats[side] = seat;
+            seat.match = match;
+            seat.side = side;
+            reserve(seat, Protocol.START_SIZE + Protocol.SESSION_SIZE);
+            Protocol.writeStart(seat.out, match.board.getGridSize(), match.board.getWinLength(), Board.toMark(side));
+            // Matches here end with the connection, so no resume is offered
+            Protocol.writeSession(seat.out, 0);
+            flush(seat);
+        }
+
+        // The match board is the authority: a move it rejects is answered with an ERROR
+        // and ends the match. Returns false if it did.
+        private boolean onMove(Seat seat, int move) throws IOException {
+            long start = System.nanoTime();
+            Match match = seat.match;
+            Board board = match.board;
+            int error = Protocol.validateMove(board, seat.side, move);
+            if (error != Protocol.OK) {
+                if (Metrics.ENABLED) Metrics.movesRejected.increment();
+                reserve(seat, Protocol.ERROR_SIZE);
+                Protocol.writeError(seat.out, error, Protocol.moveSeq(move));
+                flush(seat);
+                closeMatch(seat);
+                return false;
+            }
+            if (timeControl != null) {
+                long left = match.remaining[seat.side] - (start - match.turnStart);
+                if (left < 0) {
+                    flag(match, seat.side, start);
+                    return !match.closed;
+                }
+                match.remaining[seat.side] = timeControl.afterMove(left);
+                match.turnStart = start;
+            }
+            int cell = Protocol.moveCell(move);
+            int seq = board.getMoveCount();
+            match.moves[seq] = (byte) cell;
+            long played = Metrics.ENABLED ? System.nanoTime() : 0;
+            boolean won = board.play(cell);
+            long checked = Metrics.ENABLED ? System.nanoTime() : 0;
+            Seat opponent = match.seats[seat.side ^ 1];
+            reserve(opponent, Protocol.MOVE_SIZE);
+            Protocol.writeMove(opponent.out, seq, cell);
+            flush(opponent);
+            opponent.lastActive = start;
+            if (Metrics.ENABLED) {
+                long sent = System.nanoTime();
+                Metrics.movesReceived.increment();
+                Metrics.movesSent.increment();
+                Metrics.winCheck.record(checked - played);
+                Metrics.serialization.record(sent - checked);
+                Metrics.moveLatency.record(sent - start);
+            }
+            if (won || board.isFull()) {
+                if (Metrics.ENABLED) Metrics.gamesFinished.increment();
+                record(match, won ? seat.side : GameJournal.RESULT_DRAW, GameJournal.ENDED_ON_BOARD);
+                nextGame(match, seat.side, start);
+            } else if (timeControl != null) {
+                armClock(match, start);
+            }
+            return true;
+        }
+
+        private void record(Match match, int result, int ended) {
+            if (journal == null) return;
+            journal.record(match.board.getGridSize(), match.board.getWinLength(), match.firstSide, result, ended,
+                    GameJournal.PLAYER_REMOTE, GameJournal.PLAYER_REMOTE,
+                    match.startMillis, System.currentTimeMillis(), match.moves, match.board.getMoveCount());
+        }
+
+        // Output only backs up when the peer stops reading; one that lets a whole buffer
+        // pile up is treated as gone rather than overflowing out and killing the loop
+        private void reserve(Seat seat, int size) throws IOException {
+            if (seat.out.remaining() < size) throw new IOException("Peer stopped reading");
+        }
+
+        private void flush(Seat seat) throws IOException {
+            ByteBuffer out = seat.out;
+            out.flip();
+            seat.channel.write(out);
+            if (out.hasRemaining()) {
+                seat.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } else if ((seat.key.interestOps() & SelectionKey.OP_WRITE) != 0) {
+                seat.key.interestOps(SelectionKey.OP_READ);
+            }
+            out.compact();
+        }
+
+        private void closeMatch(Seat seat) {
+            if (seat.match == null && seat.bucket >= 0) {
+                lobby.leave(seat.bucket, seat);
+            }
+            if (seat.match != null) {
+                seat.match.closed = true;
+                if (seat.match.timeout != null) seat.match.timeout.cancel();
+                if (seat.match.board.getMoveCount() > 0 && seat.match.seats[0].channel.isOpen()
+                        && seat.match.seats[1].channel.isOpen()) {
+                    record(seat.match, GameJournal.RESULT_ABORTED, GameJournal.ENDED_ON_BOARD);
+                }
+                for (Seat s : seat.match.seats) {
+                    closeQuietly(s);
+                }
+            }
+            closeQuietly(seat);
+        }
+
+        private void closeQuietly(Seat seat) {
+            if (seat == null) return;
+            if (Metrics.ENABLED && seat.channel.isOpen()) Metrics.activeConnections.decrement();
+            if (seat.idle != null) seat.idle.cancel();
+            try {
+                if (seat.key != null) seat.key.cancel();
+                seat.channel.close();
+            } catch (IOException e) {
+                // Already gone
+            }
+        }
+    }
+}
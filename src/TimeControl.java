@@ -0,0 +1,51 @@
+import java.util.concurrent.TimeUnit;
+
+// Chess-style time control, given as "base+increment" in seconds (e.g. "60+1": a minute
+// for the game plus a second back per move) or "move:seconds" for a fixed limit per move.
+// Clocks themselves are just the remaining nanos per side, kept by their owner.
+public final class TimeControl {
+    private final long baseNanos;
+    private final long incrementNanos;
+    private final boolean perMove;
+
+    private TimeControl(long baseNanos, long incrementNanos, boolean perMove) {
+        this.baseNanos = baseNanos;
+        this.incrementNanos = incrementNanos;
+        this.perMove = perMove;
+    }
+
+    public static TimeControl parse(String spec) {
+        try {
+            if (spec.startsWith("move:")) {
+                return new TimeControl(seconds(spec.substring(5)), 0, true);
+            }
+            int plus = spec.indexOf('+');
+            if (plus < 0) return new TimeControl(seconds(spec), 0, false);
+            return new TimeControl(seconds(spec.substring(0, plus)), seconds(spec.substring(plus + 1)), false);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Time control must be base[+increment] or move:seconds, not " + spec);
+        }
+    }
+
+    private static long seconds(String s) {
+        double seconds = Double.parseDouble(s);
+        if (!(seconds >= 0)) throw new NumberFormatException(s);
+        return (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    // Time on a side's clock when a game starts
+    public long initial() {
+        return baseNanos;
+    }
+
+    // Time on the mover's clock for its next turn, given what it had left after this one
+    public long afterMove(long remaining) {
+        return perMove ? baseNanos : remaining + incrementNanos;
+    }
+
+    @Override
+    public String toString() {
+        double base = baseNanos / 1e9, inc = incrementNanos / 1e9;
+        return perMove ? String.format("%.3gs per move", base) : String.format("%.3gs+%.3gs", base, inc);
+    }
+}
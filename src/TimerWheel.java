@@ -0,0 +1,100 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Hashed timer wheel: one thread and one array of buckets for every deadline in the
+// process, however many matches there are. schedule() only queues the timeout; the wheel
+// thread drops it into bucket (deadline tick mod size) with the number of full turns
+// left, and each tick walks a single bucket. Scheduling and cancelling are O(1) and
+// deadlines fire up to one tick late. Tasks run on the wheel thread, so they must only
+// hand work off or do something short.
+final class TimerWheel {
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int SIZE = 512;
+
+    private static TimerWheel shared;
+
+    private final Timeout[] buckets = new Timeout[SIZE];
+    private final ConcurrentLinkedQueue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final long startNanos = System.nanoTime();
+    private long tick;
+
+    private TimerWheel() {
+        Thread t = new Thread(this::run, "timer-wheel");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    static synchronized TimerWheel shared() {
+        if (shared == null) shared = new TimerWheel();
+        return shared;
+    }
+
+    Timeout schedule(Runnable task, long delayNanos) {
+        Timeout t = new Timeout(task, System.nanoTime() + Math.max(0, delayNanos));
+        added.add(t);
+        return t;
+    }
+
+    private void run() {
+        while (true) {
+            long next = startNanos + (tick + 1) * TICK_NANOS;
+            long wait;
+            while ((wait = next - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Timeout t;
+            while ((t = added.poll()) != null) {
+                if (t.cancelled) continue;
+                long ticks = Math.max(tick, (t.deadline - startNanos) / TICK_NANOS);
+                t.rounds = (ticks - tick) / SIZE;
+                int i = (int) (ticks % SIZE);
+                t.next = buckets[i];
+                buckets[i] = t;
+            }
+            expire(buckets, (int) (tick % SIZE));
+            tick++;
+        }
+    }
+
+    private static void expire(Timeout[] buckets, int i) {
+        Timeout prev = null;
+        for (Timeout t = buckets[i]; t != null; ) {
+            Timeout next = t.next;
+            boolean due = !t.cancelled && t.rounds-- <= 0;
+            if (t.cancelled || due) {
+                if (prev == null) buckets[i] = next;
+                else prev.next = next;
+                t.next = null;
+            } else {
+                prev = t;
+            }
+            if (due) {
+                try {
+                    t.task.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+            t = next;
+        }
+    }
+
+    static final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private long rounds;
+        private Timeout next;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        // Cancelled timeouts are unlinked the next time the wheel passes their bucket
+        void cancel() {
+            cancelled = true;
+        }
+    }
+}
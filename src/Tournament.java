@@ -0,0 +1,290 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Engine tournaments on every core: round-robin between all entrants, or a gauntlet of the
+// first entrant against each of the others. Entrants are SelfPlay specs and shapes are
+// grid:win pairs. Games are played in pairs on the same shape with the first move swapped,
+// as a rematch does, and workers take pairs from every pairing in turn so all of them
+// progress together. Each pairing reports Elo with a 95% interval. With SPRT on, a pairing
+// stops once its log-likelihood ratio between elo0 and elo1 for the first-named entrant
+// crosses a bound, and games still to come there are never played.
+public class Tournament {
+    private final String[] specs;
+    private final int[][] shapes;
+    private final long pairsPerPairing;
+    private final Sprt sprt;
+    // One per cached entrant, shared by all workers
+    private final EvalCache[] caches;
+    private final List<Pairing> pairings = new ArrayList<>();
+
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final AtomicLong played = new AtomicLong();
+    private final AtomicLong moves = new AtomicLong();
+    private final AtomicLong[] movesBy;
+    private final AtomicLong[] nanosBy;
+
+    public Tournament(String[] specs, int[][] shapes, boolean gauntlet, long gamesPerPairing, Sprt sprt) {
+        if (specs.length < 2) throw new IllegalArgumentException("A tournament needs at least two engines");
+        this.specs = specs;
+        this.shapes = shapes;
+        this.pairsPerPairing = Math.max(1, (gamesPerPairing + 1) / 2);
+        this.sprt = sprt;
+        caches = new EvalCache[specs.length];
+        movesBy = new AtomicLong[specs.length];
+        nanosBy = new AtomicLong[specs.length];
+        for (int i = 0; i < specs.length; i++) {
+            caches[i] = specs[i].startsWith("cached:") ? new EvalCache(SelfPlay.CACHE_MB) : null;
+            movesBy[i] = new AtomicLong();
+            nanosBy[i] = new AtomicLong();
+        }
+        // Validates every shape and spec up front
+        for (int[] shape : shapes) {
+            new Board(shape[0], shape[1]);
+            for (int i = 0; i < specs.length; i++) {
+                SelfPlay.strategy(specs[i], shape[0], shape[1], 0, caches[i]);
+            }
+        }
+        for (int a = 0; a < specs.length; a++) {
+            for (int b = a + 1; b < specs.length; b++) {
+                if (gauntlet && a > 0) break;
+                pairings.add(new Pairing(a, b));
+            }
+        }
+    }
+
+    // "3:3,6:4" -> {{3, 3}, {6, 4}}
+    public static int[][] parseShapes(String spec) {
+        String[] parts = spec.split(",");
+        int[][] shapes = new int[parts.length][];
+        for (int i = 0; i < parts.length; i++) {
+            String[] gw = parts[i].trim().split(":");
+            if (gw.length != 2) throw new IllegalArgumentException("Shapes must be grid:win, not " + parts[i]);
+            shapes[i] = new int[] {Integer.parseInt(gw[0]), Integer.parseInt(gw[1])};
+        }
+        return shapes;
+    }
+
+    public void run(int threads) throws InterruptedException {
+        StringBuilder on = new StringBuilder();
+        for (int[] shape : shapes) {
+            on.append(on.length() > 0 ? ", " : "").append(shape[0]).append('x').append(shape[0]).append('/').append(shape[1]);
+        }
+        System.out.printf("%d engines, %d pairings on %s, up to %d games each on %d threads%s%n",
+                specs.length, pairings.size(), on, pairsPerPairing * 2, threads,
+                sprt != null ? ", " + sprt : "");
+        long start = System.nanoTime();
+        Thread[] workers = new Thread[Math.max(1, threads)];
+        for (int i = 0; i < workers.length; i++) {
+            long seed = 0x9E3779B97F4A7C15L * (i + 1);
+            workers[i] = new Thread(() -> play(seed), "tournament-" + i);
+            workers[i].start();
+        }
+        long last = 0;
+        for (Thread t : workers) {
+            while (t.isAlive()) {
+                t.join(2000);
+                long now = System.nanoTime();
+                if (t.isAlive() && now - last >= 2_000_000_000L) {
+                    last = now;
+                    System.out.printf("%d games, %.0f games/s%n", played.get(), played.get() / ((now - start) / 1e9));
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println();
+        for (Pairing p : pairings) System.out.println(p);
+        System.out.println();
+        System.out.println("Performance against the field:");
+        for (int e = 0; e < specs.length; e++) {
+            long w = 0, d = 0, l = 0;
+            for (Pairing p : pairings) {
+                if (p.a == e) { w += p.wins; d += p.draws; l += p.losses; }
+                else if (p.b == e) { w += p.losses; d += p.draws; l += p.wins; }
+            }
+            System.out.printf("  %-24s %s, %.1f us/move%n", specs[e], Score.format(w, d, l),
+                    nanosBy[e].get() / 1000.0 / Math.max(1, movesBy[e].get()));
+        }
+        System.out.printf("%d games in %.1fs: %.0f games/s, %.0f moves/s%n",
+                played.get(), seconds, played.get() / seconds, moves.get() / seconds);
+        for (int e = 0; e < specs.length; e++) {
+            if (caches[e] != null) System.out.println(specs[e] + " " + caches[e]);
+        }
+    }
+
+    private void play(long seed) {
+        // Strategies per entrant and shape, made on first use
+        Strategy[][] strategies = new Strategy[specs.length][shapes.length];
+        Board[] boards = new Board[shapes.length];
+        for (int s = 0; s < shapes.length; s++) boards[s] = new Board(shapes[s][0], shapes[s][1]);
+        long[] localMoves = new long[specs.length];
+        long[] localNanos = new long[specs.length];
+
+        while (true) {
+            // Claims the next pair of games, visiting pairings in turn
+            Pairing p = null;
+            long pair = -1;
+            for (int tries = 0; tries < pairings.size() && pair < 0; tries++) {
+                p = pairings.get(Math.floorMod(cursor.getAndIncrement(), pairings.size()));
+                pair = p.claim();
+            }
+            if (pair < 0) break;
+            int s = (int) (pair % shapes.length);
+            for (int e : new int[] {p.a, p.b}) {
+                if (strategies[e][s] == null) {
+                    strategies[e][s] = SelfPlay.strategy(specs[e], shapes[s][0], shapes[s][1], seed + e, caches[e]);
+                }
+            }
+            // A moves first in the first game of the pair, B in the second
+            long pairMoves = 0;
+            for (int g = 0; g < 2; g++) {
+                Board board = boards[s];
+                int sideA = g == 0 ? Board.X : Board.O;
+                board.reset(Board.X);
+                int winner = -1;
+                while (!board.isFull()) {
+                    int side = board.getSideToMove();
+                    int e = side == sideA ? p.a : p.b;
+                    long t0 = System.nanoTime();
+                    int cell = strategies[e][s].selectMove(board);
+                    localNanos[e] += System.nanoTime() - t0;
+                    localMoves[e]++;
+                    pairMoves++;
+                    if (board.play(cell)) {
+                        winner = side;
+                        break;
+                    }
+                }
+                p.record(winner < 0 ? 1 : winner == sideA ? 2 : 0);
+            }
+            played.addAndGet(2);
+            moves.addAndGet(pairMoves);
+            if (sprt != null) p.checkSprt();
+        }
+        for (int e = 0; e < specs.length; e++) {
+            movesBy[e].addAndGet(localMoves[e]);
+            nanosBy[e].addAndGet(localNanos[e]);
+            for (Strategy st : strategies[e]) {
+                if (st instanceof AlphaBetaStrategy) ((AlphaBetaStrategy) st).shutdown();
+            }
+        }
+    }
+
+    private final class Pairing {
+        final int a;
+        final int b;
+        long claimed;
+        long wins;
+        long draws;
+        long losses;
+        double llr;
+        String verdict;
+
+        Pairing(int a, int b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        // Index of the claimed pair, or -1 once this pairing is done
+        synchronized long claim() {
+            if (verdict != null || claimed >= pairsPerPairing) return -1;
+            return claimed++;
+        }
+
+        // points for A: 2 win, 1 draw, 0 loss
+        synchronized void record(int points) {
+            if (points == 2) wins++;
+            else if (points == 1) draws++;
+            else losses++;
+        }
+
+        synchronized void checkSprt() {
+            if (verdict != null) return;
+            llr = sprt.llr(wins, draws, losses);
+            if (llr >= sprt.upper()) verdict = "H1 accepted";
+            else if (llr <= sprt.lower()) verdict = "H0 accepted";
+        }
+
+        @Override
+        public synchronized String toString() {
+            String s = String.format("%s vs %s: %s", specs[a], specs[b], Score.format(wins, draws, losses));
+            if (sprt != null) {
+                s += String.format(", LLR %.2f (%.2f, %.2f) %s", llr, sprt.lower(), sprt.upper(),
+                        verdict != null ? verdict : "inconclusive");
+            }
+            return s;
+        }
+    }
+
+    // Trinomial score statistics, from the first-named side's point of view
+    static final class Score {
+        private Score() {}
+
+        static double elo(double score) {
+            // + 0.0 turns the -0 of an even score into 0
+            return -400 * Math.log10(1 / score - 1) + 0.0;
+        }
+
+        static double expected(double elo) {
+            return 1 / (1 + Math.pow(10, -elo / 400));
+        }
+
+        static String format(long w, long d, long l) {
+            long n = w + d + l;
+            if (n == 0) return "no games";
+            double s = (w + d * 0.5) / n;
+            double var = (w * (1 - s) * (1 - s) + d * (0.5 - s) * (0.5 - s) + l * s * s) / n;
+            // 95% interval on the mean score, mapped through the logistic curve
+            double margin = 1.96 * Math.sqrt(var / n);
+            double lo = elo(Math.max(1e-6, s - margin)), hi = elo(Math.min(1 - 1e-6, s + margin));
+            String elo = s <= 0 || s >= 1
+                    ? (s <= 0 ? "-inf" : "+inf")
+                    : String.format("%+.0f", elo(s));
+            return String.format("+%d =%d -%d (%.1f%%), Elo %s [%+.0f, %+.0f]", w, d, l, 100 * s, elo, lo, hi);
+        }
+    }
+
+    // Sequential probability ratio test between H0: elo = elo0 and H1: elo = elo1, using the
+    // usual normal approximation of the trinomial log-likelihood ratio:
+    //   LLR ~= n (s1 - s0) (2 s - s0 - s1) / (2 var)
+    public static final class Sprt {
+        private final double elo0;
+        private final double elo1;
+        private final double alpha;
+        private final double beta;
+
+        public Sprt(double elo0, double elo1, double alpha, double beta) {
+            if (!(elo1 > elo0)) throw new IllegalArgumentException("SPRT needs elo1 > elo0");
+            this.elo0 = elo0;
+            this.elo1 = elo1;
+            this.alpha = alpha;
+            this.beta = beta;
+        }
+
+        double lower() {
+            return Math.log(beta / (1 - alpha));
+        }
+
+        double upper() {
+            return Math.log((1 - beta) / alpha);
+        }
+
+        double llr(long w, long d, long l) {
+            if (w + d + l == 0) return 0;
+            // Half a game of each result keeps the variance above zero when every game so far
+            // ended the same way, which is common between strong engines on small boards
+            double pw = w + 0.5, pd = d + 0.5, pl = l + 0.5, n = pw + pd + pl;
+            double s = (pw + pd * 0.5) / n;
+            double var = (pw * (1 - s) * (1 - s) + pd * (0.5 - s) * (0.5 - s) + pl * s * s) / n;
+            double s0 = Score.expected(elo0), s1 = Score.expected(elo1);
+            return n * (s1 - s0) * (2 * s - s0 - s1) / (2 * var);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("SPRT elo0=%.1f elo1=%.1f alpha=%.2f beta=%.2f", elo0, elo1, alpha, beta);
+        }
+    }
+}
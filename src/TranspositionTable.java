@@ -0,0 +1,91 @@
+import java.util.Arrays;
+
+// Fixed-size hash table of search results in two parallel long arrays, no boxing.
+// Slots come in pairs: a probe looks at both, a store replaces the matching key,
+// otherwise the entry from an older search or, failing that, the shallower one.
+// Shared by search threads without locks: each slot stores key ^ entry next to the
+// entry, so a slot torn by a concurrent write simply fails the key check.
+// Entry layout: score (32) | move (8) | depth (8) | bound (2) | generation (8) | valid (1)
+final class TranspositionTable {
+    static final int EXACT = 0, LOWER = 1, UPPER = 2;
+    static final int NO_MOVE = 0xFF;
+
+    private static final long VALID = 1L << 63;
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+    private volatile int generation;
+
+    TranspositionTable(int sizeMb) {
+        // 16 bytes a slot, as a power of two no larger than an array can hold
+        long wanted = Math.max(2, sizeMb * (1L << 20) / 16);
+        int slots = Integer.highestOneBit((int) Math.min(wanted, 1 << 30));
+        keys = new long[slots];
+        entries = new long[slots];
+        mask = slots - 2;
+    }
+
+    void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(entries, 0L);
+    }
+
+    // Returns the packed entry for key, or 0 if there is none
+    long probe(long key) {
+        int i = (int) key & mask;
+        long e = entries[i];
+        if (e != 0 && (keys[i] ^ e) == key) return e;
+        e = entries[i + 1];
+        if (e != 0 && (keys[i + 1] ^ e) == key) return e;
+        return 0L;
+    }
+
+    void store(long key, int score, int move, int depth, int bound) {
+        int i = (int) key & mask;
+        long e0 = entries[i], e1 = entries[i + 1];
+        int slot;
+        if (e0 == 0 || (keys[i] ^ e0) == key) slot = i;
+        else if (e1 == 0 || (keys[i + 1] ^ e1) == key) slot = i + 1;
+        else slot = replacementScore(e0) <= replacementScore(e1) ? i : i + 1;
+
+        long entry = VALID
+                | (long) generation << 50
+                | (long) (bound & 3) << 48
+                | (long) (depth & 0xFF) << 40
+                | (long) (move & 0xFF) << 32
+                | (score & 0xFFFFFFFFL);
+        entries[slot] = entry;
+        keys[slot] = key ^ entry;
+    }
+
+    // Lower means a better victim: stale entries first, then shallow ones
+    private int replacementScore(long entry) {
+        int age = (generation - generation(entry)) & 0xFF;
+        return depth(entry) - 8 * age;
+    }
+
+    static int score(long entry) {
+        return (int) entry;
+    }
+
+    static int move(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    static int depth(long entry) {
+        return (int) (entry >>> 40) & 0xFF;
+    }
+
+    static int bound(long entry) {
+        return (int) (entry >>> 48) & 3;
+    }
+
+    static int generation(long entry) {
+        return (int) (entry >>> 50) & 0xFF;
+    }
+}
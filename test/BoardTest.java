@@ -0,0 +1,103 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoardTest {
+    @Test
+    void linesAreFoundInEveryDirection() {
+        assertTrue(wins(3, 3, 0, 1, 2));
+        assertTrue(wins(3, 3, 1, 4, 7));
+        assertTrue(wins(3, 3, 0, 4, 8));
+        assertTrue(wins(3, 3, 2, 4, 6));
+        assertFalse(wins(3, 3, 0, 1, 5));
+        // Five in a row on a board wider than one 64-bit word
+        assertTrue(wins(10, 5, 95, 96, 97, 98, 99));
+        assertTrue(wins(10, 5, 9, 18, 27, 36, 45));
+        assertFalse(wins(10, 5, 6, 7, 8, 9, 10));
+    }
+
+    @Test
+    void winnerScanAgreesWithLastMoveCheck() {
+        Board board = new Board(4, 3);
+        board.reset(Board.O);
+        int[] cells = {5, 0, 10, 1, 15};
+        boolean won = false;
+        for (int cell : cells) won = board.play(cell);
+        assertTrue(won);
+        assertEquals(Board.O, board.winner());
+    }
+
+    @Test
+    void undoRestoresTheBoardAndItsHash() {
+        Board board = new Board(10, 5);
+        board.reset(Board.X);
+        long empty = board.getHash();
+        int[] cells = {0, 99, 63, 64, 42};
+        long[] hashes = new long[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            board.play(cells[i]);
+            hashes[i] = board.getHash();
+        }
+        for (int i = cells.length - 1; i > 0; i--) {
+            board.undo(cells[i]);
+            assertEquals(hashes[i - 1], board.getHash());
+            assertTrue(board.isEmpty(cells[i]));
+        }
+        board.undo(cells[0]);
+        assertEquals(empty, board.getHash());
+        assertEquals(0, board.getMoveCount());
+        assertEquals(Board.X, board.getSideToMove());
+    }
+
+    @Test
+    void hashDependsOnWhoMovedNotTheOrder() {
+        Board a = new Board(3, 3), b = new Board(3, 3);
+        a.reset(Board.X);
+        b.reset(Board.X);
+        a.play(0);
+        a.play(4);
+        a.play(8);
+        b.play(8);
+        b.play(4);
+        b.play(0);
+        assertEquals(a.getHash(), b.getHash());
+        b.undo(0);
+        b.undo(4);
+        b.play(0);
+        b.play(4);
+        assertNotEquals(a.getHash(), b.getHash());
+    }
+
+    @Test
+    void invalidShapesAreRefused() {
+        assertThrows(IllegalArgumentException.class, () -> new Board(2, 2));
+        assertThrows(IllegalArgumentException.class, () -> new Board(Board.MAX_SIZE + 1, 5));
+    }
+
+    // X plays the given cells while O fills the lowest cells X does not use
+    private static boolean wins(int size, int length, int... cells) {
+        Board board = new Board(size, length);
+        board.reset(Board.X);
+        boolean won = false;
+        int filler = 0;
+        for (int i = 0; i < cells.length; i++) {
+            won = board.play(cells[i]);
+            if (i == cells.length - 1) break;
+            while (!board.isEmpty(filler) || contains(cells, filler)) filler++;
+            board.play(filler);
+        }
+        assertEquals(won, board.winner() == Board.X);
+        return won;
+    }
+
+    private static boolean contains(int[] cells, int cell) {
+        for (int c : cells) {
+            if (c == cell) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,130 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameJournalTest {
+    // X takes the top row while O plays under it
+    private static final byte[] X_WINS = {0, 3, 1, 4, 2};
+    private static final byte[] DRAW = {0, 4, 8, 1, 7, 6, 2, 5, 3};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordsReplayThroughTheRulesEngine() throws IOException {
+        Path path = dir.resolve("games.bin");
+        try (GameJournal journal = new GameJournal(path, 10)) {
+            journal.record(3, 3, Board.X, GameJournal.RESULT_X, GameJournal.ENDED_ON_BOARD,
+                    GameJournal.PLAYER_HUMAN, GameJournal.PLAYER_REMOTE, 1000, 1500, X_WINS, X_WINS.length);
+            journal.record(3, 3, Board.X, GameJournal.RESULT_DRAW, GameJournal.ENDED_ON_BOARD,
+                    GameJournal.PLAYER_REMOTE, GameJournal.PLAYER_HUMAN, 2000, 2250, DRAW, DRAW.length);
+        }
+        assertEquals(2 * GameJournal.RECORD_SIZE, Files.size(path));
+
+        List<int[]> seen = new ArrayList<>();
+        Board board = new Board(3, 3);
+        long games = GameJournal.replay(path, r -> seen.add(new int[] {
+                r.result(), r.replay(board), r.moveCount(), r.playerX(), (int) r.startMillis(), r.durationMillis()}));
+        assertEquals(2, games);
+        assertEquals(GameJournal.RESULT_X, seen.get(0)[0]);
+        assertEquals(GameJournal.RESULT_X, seen.get(0)[1]);
+        assertEquals(5, seen.get(0)[2]);
+        assertEquals(GameJournal.PLAYER_HUMAN, seen.get(0)[3]);
+        assertEquals(1000, seen.get(0)[4]);
+        assertEquals(500, seen.get(0)[5]);
+        assertEquals(GameJournal.RESULT_DRAW, seen.get(1)[1]);
+    }
+
+    @Test
+    void reusedBatchesLeaveNoOldMovesBehind() throws IOException {
+        Path path = dir.resolve("games.bin");
+        byte[] longGame = new byte[GameJournal.MAX_MOVES];
+        java.util.Arrays.fill(longGame, (byte) 7);
+        // Far more than one batch, alternating long and short games, slowly enough that
+        // the flusher hands written batches back for reuse
+        int games = 3000;
+        try (GameJournal journal = new GameJournal(path, 1)) {
+            for (int i = 0; i < games; i++) {
+                boolean small = i % 2 == 1;
+                journal.record(3, 3, Board.X, GameJournal.RESULT_X, GameJournal.ENDED_ON_BOARD, 0, 0, 0, 0,
+                        small ? X_WINS : longGame, small ? X_WINS.length : longGame.length);
+                if (i % 200 == 0) sleep(5);
+            }
+        }
+        ByteBuffer all = ByteBuffer.wrap(Files.readAllBytes(path));
+        assertEquals(games * GameJournal.RECORD_SIZE, all.capacity());
+        GameJournal.Record record = new GameJournal.Record();
+        for (int i = 0; i < games; i++) {
+            record.at(all, i * GameJournal.RECORD_SIZE);
+            for (int m = record.moveCount(); m < GameJournal.MAX_MOVES; m++) {
+                assertEquals(0, record.move(m), "record " + i + " move " + m);
+            }
+        }
+    }
+
+    @Test
+    void replayRejectsRecordsThatDoNotHold() {
+        ByteBuffer buf = ByteBuffer.allocate(GameJournal.RECORD_SIZE);
+        GameJournal.Record record = new GameJournal.Record().at(buf, 0);
+        Board board = new Board(3, 3);
+
+        write(buf, Board.X, GameJournal.RESULT_X, X_WINS, 4);
+        assertEquals(GameJournal.RESULT_ABORTED, record.replay(board), "unfinished");
+        write(buf, Board.X, GameJournal.RESULT_X, new byte[] {0, 0}, 2);
+        assertEquals(GameJournal.RESULT_ABORTED, record.replay(board), "cell played twice");
+        write(buf, Board.X, GameJournal.RESULT_X, new byte[] {0, 9}, 2);
+        assertEquals(GameJournal.RESULT_ABORTED, record.replay(board), "cell off the board");
+        write(buf, 7, GameJournal.RESULT_X, X_WINS, X_WINS.length);
+        assertEquals(GameJournal.RESULT_ABORTED, record.replay(board), "no such side");
+    }
+
+    @Test
+    void gamesLostOnTimeReplayToTheSideLeftToMove() {
+        ByteBuffer buf = ByteBuffer.allocate(GameJournal.RECORD_SIZE);
+        GameJournal.Record record = new GameJournal.Record().at(buf, 0);
+        Board board = new Board(3, 3);
+
+        // X runs out of time with the move
+        write(buf, Board.X, GameJournal.RESULT_O, X_WINS, 2, GameJournal.ENDED_ON_TIME);
+        assertTrue(record.endedOnTime());
+        assertEquals(GameJournal.RESULT_O, record.replay(board));
+        // and O, in a game O started
+        write(buf, Board.O, GameJournal.RESULT_X, X_WINS, 2, GameJournal.ENDED_ON_TIME);
+        assertEquals(GameJournal.RESULT_X, record.replay(board));
+        // A game already decided on the board cannot also be lost on time
+        write(buf, Board.X, GameJournal.RESULT_O, X_WINS, X_WINS.length, GameJournal.ENDED_ON_TIME);
+        assertEquals(GameJournal.RESULT_ABORTED, record.replay(board));
+        write(buf, Board.X, GameJournal.RESULT_O, DRAW, DRAW.length, GameJournal.ENDED_ON_TIME);
+        assertEquals(GameJournal.RESULT_ABORTED, record.replay(board));
+    }
+
+    static void write(ByteBuffer buf, int firstSide, int result, byte[] moves, int count) {
+        write(buf, firstSide, result, moves, count, GameJournal.ENDED_ON_BOARD);
+    }
+
+    static void write(ByteBuffer buf, int firstSide, int result, byte[] moves, int count, int ended) {
+        buf.clear();
+        buf.put((byte) 'G').put((byte) GameJournal.VERSION).put((byte) 3).put((byte) 3)
+                .put((byte) firstSide).put((byte) result).put((byte) count).put((byte) ended);
+        buf.position(28);
+        buf.put(moves, 0, count);
+        buf.clear();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
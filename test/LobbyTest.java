@@ -0,0 +1,80 @@
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LobbyTest {
+    private final Lobby<String> lobby = new Lobby<>();
+    private final int bucket = Lobby.bucket(3, 3);
+
+    @Test
+    void bucketsKeepTheirShape() {
+        int b = Lobby.bucket(Board.MAX_SIZE, 5);
+        assertEquals(Board.MAX_SIZE, Lobby.gridSize(b));
+        assertEquals(5, Lobby.winLength(b));
+    }
+
+    @Test
+    void secondJoinerTakesTheFirst() {
+        assertNull(lobby.join(bucket, "a", p -> true));
+        assertNull(lobby.join(Lobby.bucket(4, 3), "b", p -> true));
+        assertEquals("a", lobby.join(bucket, "c", p -> true));
+        assertNull(lobby.join(bucket, "d", p -> true));
+        assertEquals(1, lobby.getPairings());
+    }
+
+    @Test
+    void deadEntriesAreDropped() {
+        lobby.join(bucket, "gone", p -> true);
+        assertNull(lobby.join(bucket, "b", p -> !p.equals("gone")));
+        assertEquals("b", lobby.join(bucket, "c", p -> true));
+    }
+
+    @Test
+    void leavingFailsOnceTaken() {
+        lobby.join(bucket, "a", p -> true);
+        assertTrue(lobby.leave(bucket, "a"));
+        lobby.join(bucket, "b", p -> true);
+        lobby.join(bucket, "c", p -> true);
+        assertFalse(lobby.leave(bucket, "b"));
+        assertEquals(1, lobby.getPairings());
+    }
+
+    @Test
+    void concurrentJoinersPairEachOtherExactlyOnce() throws InterruptedException {
+        int threads = 4, joins = 20_000;
+        Set<String> paired = ConcurrentHashMap.newKeySet();
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < joins; i++) {
+                    String me = id + ":" + i;
+                    String partner = lobby.join(bucket, me, p -> true);
+                    if (partner != null) {
+                        paired.add(partner);
+                        paired.add(me);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        go.countDown();
+        for (Thread w : workers) w.join();
+        // An even number of joiners leaves nobody waiting, and nobody is taken twice
+        assertEquals(threads * joins / 2, lobby.getPairings());
+        assertEquals(threads * joins, paired.size());
+    }
+}
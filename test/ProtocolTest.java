@@ -0,0 +1,154 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProtocolTest {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+
+    private DataInputStream in() {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    void handshakeRoundTrips() throws IOException {
+        Protocol.writeHello(out, Protocol.ROLE_SPECTATOR, 7, 4);
+        Protocol.writeStart(out, 5, 4, 'O');
+        Protocol.writeSession(out, 0x0123456789ABCDEFL);
+        assertEquals(Protocol.HELLO_SIZE + Protocol.START_SIZE + Protocol.SESSION_SIZE, bytes.size());
+
+        DataInputStream in = in();
+        int hello = Protocol.readHello(in);
+        assertEquals(Protocol.ROLE_SPECTATOR, Protocol.role(hello));
+        assertEquals(7, Protocol.gridSize(hello));
+        assertEquals(4, Protocol.winLength(hello));
+        int start = Protocol.readStart(in);
+        assertEquals(5, Protocol.gridSize(start));
+        assertEquals(4, Protocol.winLength(start));
+        assertEquals('O', Protocol.side(start));
+        assertEquals(0x0123456789ABCDEFL, Protocol.readSession(in));
+    }
+
+    @Test
+    void movesRoundTripThroughStreamsAndBuffers() throws IOException {
+        Protocol.writeMove(out, 42, 99);
+        assertEquals(Protocol.MOVE_SIZE, bytes.size());
+        int move = Protocol.readMove(in());
+        assertFalse(Protocol.isTimeout(move));
+        assertEquals(42, Protocol.moveSeq(move));
+        assertEquals(99, Protocol.moveCell(move));
+
+        ByteBuffer buf = ByteBuffer.allocate(Protocol.MOVE_SIZE);
+        Protocol.writeMove(buf, 42, 99);
+        buf.flip();
+        assertArrayEquals(bytes.toByteArray(), buf.array());
+        assertEquals(move, Protocol.readMove(buf));
+    }
+
+    @Test
+    void timeoutIsReadInPlaceOfAMove() throws IOException {
+        Protocol.writeTimeout(out, Board.O, 200);
+        assertEquals(Protocol.TIMEOUT_SIZE, bytes.size());
+        int move = Protocol.readMove(in());
+        assertTrue(Protocol.isTimeout(move));
+        assertEquals(Board.O, Protocol.timeoutSide(move));
+        assertEquals(200, Protocol.timeoutGame(move));
+    }
+
+    @Test
+    void resumeRoundTrips() throws IOException {
+        Protocol.writeResume(out, 77L, 3, 5);
+        assertEquals(Protocol.RESUME_SIZE, bytes.size());
+        int resume = Protocol.readResume(in(), 77L);
+        assertEquals(3, resume >>> 8);
+        assertEquals(5, resume & 0xFF);
+        assertThrows(ProtocolException.class, () -> Protocol.readResume(in(), 78L));
+
+        bytes.reset();
+        byte[] moves = {4, 0, 8, 2, 6};
+        Protocol.writeResumed(out, 9, Board.O, moves, 2, 5);
+        assertEquals(Protocol.RESUMED_HEADER_SIZE + 3, bytes.size());
+        byte[] read = new byte[Board.MAX_SIZE * Board.MAX_SIZE];
+        int resumed = Protocol.readResumed(in(), read);
+        assertEquals(9, Protocol.resumeGame(resumed));
+        assertEquals(Board.O, Protocol.resumeFirstSide(resumed));
+        assertEquals(2, Protocol.resumeFrom(resumed));
+        assertEquals(5, Protocol.resumeCount(resumed));
+        assertEquals(8, read[2]);
+        assertEquals(6, read[4]);
+    }
+
+    @Test
+    void snapshotRoundTrips() throws IOException {
+        byte[] moves = {4, 0, 8};
+        ByteBuffer buf = ByteBuffer.allocate(Protocol.SNAPSHOT_HEADER_SIZE + moves.length);
+        Protocol.writeSnapshot(buf, 3, 3, Board.X, moves, moves.length);
+        byte[] read = new byte[9];
+        int snapshot = Protocol.readSnapshot(new DataInputStream(new ByteArrayInputStream(buf.array())), read);
+        assertEquals(3, Protocol.snapshotCount(snapshot));
+        assertEquals(3, Protocol.gridSize(snapshot));
+        assertEquals(Board.X, Protocol.firstSide(snapshot));
+        assertArrayEquals(moves, Arrays.copyOf(read, 3));
+    }
+
+    @Test
+    void frameSizesMatchWhatIsWritten() {
+        assertEquals(Protocol.MOVE_SIZE, Protocol.frameSize(Protocol.MOVE));
+        assertEquals(Protocol.ERROR_SIZE, Protocol.frameSize(Protocol.ERROR));
+        assertEquals(Protocol.TIMEOUT_SIZE, Protocol.frameSize(Protocol.TIMEOUT));
+        assertEquals(Protocol.HELLO_SIZE, Protocol.frameSize(Protocol.HELLO));
+    }
+
+    @Test
+    void movesTheBoardCannotTakeAreRejected() {
+        Board board = new Board(3, 3);
+        board.reset(Board.X);
+        board.play(4);
+        assertEquals(Protocol.ERR_TURN, Protocol.validateMove(board, Board.X, 1 << 8 | 0));
+        assertEquals(Protocol.ERR_SEQUENCE, Protocol.validateMove(board, Board.O, 0 << 8 | 0));
+        assertEquals(Protocol.ERR_SEQUENCE, Protocol.validateMove(board, Board.O, 2 << 8 | 0));
+        assertEquals(Protocol.ERR_RANGE, Protocol.validateMove(board, Board.O, 1 << 8 | 9));
+        assertEquals(Protocol.ERR_OCCUPIED, Protocol.validateMove(board, Board.O, 1 << 8 | 4));
+        assertEquals(Protocol.OK, Protocol.validateMove(board, Board.O, 1 << 8 | 0));
+    }
+
+    @Test
+    void errorInPlaceOfAMoveIsThrown() throws IOException {
+        Protocol.writeError(out, Protocol.ERR_OCCUPIED, 3);
+        assertEquals(Protocol.ERROR_SIZE, bytes.size());
+        ProtocolException e = assertThrows(ProtocolException.class, () -> Protocol.readMove(in()));
+        assertTrue(e.getMessage().contains("move 3"), e.getMessage());
+
+        ByteBuffer buf = ByteBuffer.wrap(bytes.toByteArray());
+        assertThrows(ProtocolException.class, () -> Protocol.readMove(buf));
+    }
+
+    @Test
+    void badHandshakesAreRefused() throws IOException {
+        out.writeByte(Protocol.HELLO);
+        out.writeShort(0x1234);
+        assertThrows(ProtocolException.class, () -> Protocol.readHello(in()));
+
+        bytes.reset();
+        out.writeByte(Protocol.START);
+        out.writeByte(Protocol.VERSION + 1);
+        assertThrows(ProtocolException.class, () -> Protocol.readStart(in()));
+
+        bytes.reset();
+        Protocol.writeStart(out, 11, 3, 'X');
+        assertThrows(ProtocolException.class, () -> Protocol.readStart(in()));
+    }
+}
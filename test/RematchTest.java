@@ -0,0 +1,99 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RematchTest {
+    private TicTacToeServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new TicTacToeServer(0, 1, 3, 3);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void sideThatDidNotEndTheGameStartsTheNext() {
+        assertEquals(Board.O, Protocol.rematchFirstSide(Board.X));
+        assertEquals(Board.X, Protocol.rematchFirstSide(Board.O));
+    }
+
+    @Test
+    void serverStartsRematchLikeTheClients() throws IOException {
+        try (Socket a = connect(); Socket b = connect()) {
+            Peer x = new Peer(a), o = new Peer(b);
+            x.join();
+            o.join();
+            x.start();
+            o.start();
+            if (x.side != 'X') {
+                Peer t = x;
+                x = o;
+                o = t;
+            }
+            assertEquals('O', o.side);
+
+            // X starts the first game, and O ends it by taking the middle row
+            int[] cells = {0, 3, 1, 4, 8, 5};
+            for (int seq = 0; seq < cells.length; seq++) {
+                Peer mover = seq % 2 == 0 ? x : o, other = seq % 2 == 0 ? o : x;
+                mover.move(seq, cells[seq]);
+                assertEquals(seq << 8 | cells[seq], other.read());
+            }
+
+            // So X starts the rematch, and its opening move is relayed rather than refused
+            x.move(0, 4);
+            assertEquals(4, o.read());
+            o.move(1, 0);
+            assertEquals(1 << 8, x.read());
+        }
+    }
+
+    private Socket connect() throws IOException {
+        Socket s = new Socket("127.0.0.1", server.getLocalPort());
+        s.setSoTimeout(5000);
+        return s;
+    }
+
+    private static final class Peer {
+        final DataInputStream in;
+        final DataOutputStream out;
+        char side;
+
+        Peer(Socket s) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            out = new DataOutputStream(s.getOutputStream());
+        }
+
+        void join() throws IOException {
+            Protocol.writeHello(out, Protocol.ROLE_PLAYER, 3, 3);
+            out.flush();
+        }
+
+        void move(int seq, int cell) throws IOException {
+            Protocol.writeMove(out, seq, cell);
+            out.flush();
+        }
+
+        int read() throws IOException {
+            return Protocol.readMove(in);
+        }
+
+        void start() throws IOException {
+            side = Protocol.side(Protocol.readStart(in));
+            Protocol.readSession(in);
+        }
+    }
+}
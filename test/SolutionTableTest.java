@@ -0,0 +1,81 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SolutionTableTest {
+    @TempDir
+    static Path dir;
+
+    private static SolutionTable table;
+
+    @BeforeAll
+    static void generate() throws IOException {
+        Path path = dir.resolve("solution-3x3-k3.bin");
+        int count = SolutionTable.generate(3, 3, path);
+        table = SolutionTable.open(path);
+        assertEquals(count, table.size());
+    }
+
+    @Test
+    void symmetriesAreInvertiblePermutations() {
+        for (int n = 3; n <= 4; n++) {
+            int[][] perm = SolutionTable.symmetries(n);
+            int[][] inv = SolutionTable.invert(perm);
+            for (int s = 0; s < perm.length; s++) {
+                boolean[] hit = new boolean[n * n];
+                for (int cell = 0; cell < n * n; cell++) {
+                    hit[perm[s][cell]] = true;
+                    assertEquals(cell, inv[s][perm[s][cell]]);
+                }
+                for (boolean h : hit) assertTrue(h);
+            }
+        }
+    }
+
+    @Test
+    void symmetricPositionsShareACanonicalKey() {
+        int[][] perm = SolutionTable.symmetries(3);
+        // X in a corner, O on an adjacent edge, in all eight orientations
+        Board board = new Board(3, 3);
+        long key = -1;
+        for (int s = 0; s < perm.length; s++) {
+            board.reset(Board.X);
+            board.play(perm[s][0]);
+            board.play(perm[s][1]);
+            long k = SolutionTable.key(board, perm[SolutionTable.canonicalSymmetry(board, perm)]);
+            if (s == 0) key = k;
+            assertEquals(key, k, "symmetry " + s);
+        }
+    }
+
+    @Test
+    void emptyBoardIsADraw() {
+        Board board = new Board(3, 3);
+        board.reset(Board.X);
+        assertEquals(0, table.value(board));
+        board.reset(Board.O);
+        assertEquals(0, table.value(board));
+    }
+
+    @Test
+    void bestMoveIsMappedBackToTheBoardAsPlayed() {
+        // X holds two of the top row against O's diagonal, in every orientation
+        int[][] perm = SolutionTable.symmetries(3);
+        Board board = new Board(3, 3);
+        for (int s = 0; s < perm.length; s++) {
+            board.reset(Board.X);
+            board.play(perm[s][0]);
+            board.play(perm[s][4]);
+            board.play(perm[s][1]);
+            board.play(perm[s][8]);
+            assertEquals(perm[s][2], table.bestMove(board), "symmetry " + s);
+            assertTrue(table.value(board) > 0);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void shortDelayFiresOnTime() throws InterruptedException {
+        long firedAfter = fire(50);
+        assertTrue(firedAfter >= 50 * MILLIS, "fired early: " + firedAfter);
+        assertTrue(firedAfter < 1000 * MILLIS, "fired late: " + firedAfter);
+    }
+
+    @Test
+    void delayLongerThanOneTurnWaitsForItsRound() throws InterruptedException {
+        // The wheel turns once every 5.12s, so this lands in a bucket it passes once too early
+        long firedAfter = fire(5600);
+        assertTrue(firedAfter >= 5600 * MILLIS, "fired a round early: " + firedAfter);
+        assertTrue(firedAfter < 6600 * MILLIS, "fired late: " + firedAfter);
+    }
+
+    @Test
+    void cancelledTimeoutNeverRuns() throws InterruptedException {
+        AtomicBoolean ran = new AtomicBoolean();
+        TimerWheel.Timeout t = TimerWheel.shared().schedule(() -> ran.set(true), 30 * MILLIS);
+        t.cancel();
+        assertTrue(fire(100) >= 100 * MILLIS);
+        assertFalse(ran.get());
+    }
+
+    // Schedules a task and waits for it, returning how long after scheduling it ran
+    private static long fire(long delayMillis) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicLong ranAt = new AtomicLong();
+        long start = System.nanoTime();
+        TimerWheel.shared().schedule(() -> {
+            ranAt.set(System.nanoTime());
+            done.countDown();
+        }, delayMillis * MILLIS);
+        assertTrue(done.await(delayMillis + 5000, TimeUnit.MILLISECONDS), "never fired");
+        return ranAt.get() - start;
+    }
+}